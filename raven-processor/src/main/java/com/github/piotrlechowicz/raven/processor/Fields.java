@@ -0,0 +1,65 @@
+package com.github.piotrlechowicz.raven.processor;
+
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.util.Elements;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads annotated fields and values of annotations from the compiled model.
+ *
+ * @author plechowicz
+ */
+final class Fields {
+
+	private Fields() {
+	}
+
+	/**
+	 * @return fields annotated with the annotation in the order of declaration
+	 */
+	static List<VariableElement> getAnnotatedFields(TypeElement type, TypeElement annotation) {
+		List<VariableElement> fields = new ArrayList<>();
+		for (Element element : type.getEnclosedElements()) {
+			if (element.getKind() == ElementKind.FIELD && getAnnotation(element, annotation) != null) {
+				fields.add((VariableElement) element);
+			}
+		}
+		return fields;
+	}
+
+	/**
+	 * @return mirror of the annotation of the element or {@code null} if element is not annotated
+	 */
+	static AnnotationMirror getAnnotation(Element element, TypeElement annotation) {
+		if (annotation == null) {
+			return null;
+		}
+		for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+			if (mirror.getAnnotationType().asElement().equals(annotation)) {
+				return mirror;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return value of the annotation's element, default value is returned if the value is not specified
+	 */
+	static Object getValue(Elements elements, AnnotationMirror mirror, String name) {
+		Map<? extends ExecutableElement, ? extends AnnotationValue> values = elements.getElementValuesWithDefaults(mirror);
+		for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : values.entrySet()) {
+			if (entry.getKey().getSimpleName().contentEquals(name)) {
+				return entry.getValue().getValue();
+			}
+		}
+		throw new IllegalArgumentException("No element " + name + " in " + mirror);
+	}
+}
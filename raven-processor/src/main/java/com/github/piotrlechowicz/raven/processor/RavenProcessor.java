@@ -0,0 +1,149 @@
+package com.github.piotrlechowicz.raven.processor;
+
+import com.github.piotrlechowicz.raven.GeneratedReader;
+import com.github.piotrlechowicz.raven.GeneratedSaver;
+import com.github.piotrlechowicz.raven.annotations.Parsable;
+import com.github.piotrlechowicz.raven.annotations.Savable;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Generates readers and savers of annotated classes, so the runtime does not have to use reflection.
+ * <p>
+ * For every class with fields annotated with {@link Parsable} a {@link GeneratedReader} is generated,
+ * and for every class with fields annotated with {@link Savable} a {@link GeneratedSaver}.
+ * Generated classes are placed in the package of the annotated class and access its fields directly,
+ * therefore annotated fields cannot be private nor final. If a class does not meet the requirements,
+ * nothing is generated for it and the runtime falls back to reflection.
+ * </p>
+ *
+ * @author plechowicz
+ */
+public class RavenProcessor extends AbstractProcessor {
+
+	private final Set<String> generated = new HashSet<>();
+
+	@Override
+	public Set<String> getSupportedAnnotationTypes() {
+		Set<String> types = new HashSet<>();
+		types.add(Parsable.class.getCanonicalName());
+		types.add(Savable.class.getCanonicalName());
+		return types;
+	}
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		TypeElement parsable = processingEnv.getElementUtils().getTypeElement(Parsable.class.getCanonicalName());
+		TypeElement savable = processingEnv.getElementUtils().getTypeElement(Savable.class.getCanonicalName());
+
+		for (TypeElement type : getAnnotatedClasses(roundEnv, parsable)) {
+			if (canBeGenerated(type, parsable, "reader")) {
+				String name = getGeneratedName(type, GeneratedReader.SUFFIX);
+				if (generated.add(name)) {
+					write(type, name, new ReaderGenerator(processingEnv, type, name).generate());
+				}
+			}
+		}
+		for (TypeElement type : getAnnotatedClasses(roundEnv, savable)) {
+			if (canBeGenerated(type, savable, "saver")) {
+				String name = getGeneratedName(type, GeneratedSaver.SUFFIX);
+				if (generated.add(name)) {
+					write(type, name, new SaverGenerator(processingEnv, type, name).generate());
+				}
+			}
+		}
+		return false;
+	}
+
+	private Set<TypeElement> getAnnotatedClasses(RoundEnvironment roundEnv, TypeElement annotation) {
+		Set<TypeElement> types = new LinkedHashSet<>();
+		if (annotation == null) {
+			return types;
+		}
+		for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+			if (element.getKind() == ElementKind.FIELD) {
+				types.add((TypeElement) element.getEnclosingElement());
+			}
+		}
+		return types;
+	}
+
+	/**
+	 * Checks if generated class can access the class and its annotated fields
+	 */
+	private boolean canBeGenerated(TypeElement type, TypeElement annotation, String kind) {
+		for (Element enclosing = type; enclosing instanceof TypeElement; enclosing = enclosing.getEnclosingElement()) {
+			TypeElement enclosingType = (TypeElement) enclosing;
+			if (enclosingType.getModifiers().contains(Modifier.PRIVATE)) {
+				return skip(type, kind, "class " + enclosingType.getSimpleName() + " is private");
+			}
+			if (enclosingType.getNestingKind() == NestingKind.LOCAL || enclosingType.getNestingKind() == NestingKind.ANONYMOUS) {
+				return skip(type, kind, "class is local");
+			}
+		}
+		for (VariableElement field : Fields.getAnnotatedFields(type, annotation)) {
+			Set<Modifier> modifiers = field.getModifiers();
+			if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.FINAL) || modifiers.contains(Modifier.STATIC)) {
+				return skip(type, kind, "field " + field.getSimpleName() + " is private, final or static");
+			}
+		}
+		return true;
+	}
+
+	private boolean skip(TypeElement type, String kind, String reason) {
+		processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+				"Raven " + kind + " is not generated, reflection is used instead: " + reason, type);
+		return false;
+	}
+
+	private void write(TypeElement type, String name, String source) {
+		if (source == null) {
+			return;
+		}
+		try {
+			JavaFileObject file = processingEnv.getFiler().createSourceFile(name, type);
+			try (Writer writer = file.openWriter()) {
+				writer.write(source);
+			}
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+					"Unable to write " + name + ": " + e.getMessage(), type);
+		}
+	}
+
+	/**
+	 * Same naming as in the runtime: package of a class and simple names of the class
+	 * and its enclosing classes joined with {@code _}, followed by the suffix.
+	 */
+	static String getGeneratedName(TypeElement type, String suffix) {
+		StringBuilder simpleName = new StringBuilder(type.getSimpleName());
+		Element enclosing = type.getEnclosingElement();
+		while (enclosing instanceof TypeElement) {
+			simpleName.insert(0, enclosing.getSimpleName() + "_");
+			enclosing = enclosing.getEnclosingElement();
+		}
+		String packageName = ((PackageElement) enclosing).getQualifiedName().toString();
+		return (packageName.isEmpty() ? "" : packageName + ".") + simpleName + suffix;
+	}
+}
@@ -0,0 +1,240 @@
+package com.github.piotrlechowicz.raven.processor;
+
+import com.github.piotrlechowicz.raven.Cells;
+import com.github.piotrlechowicz.raven.GeneratedReader;
+import com.github.piotrlechowicz.raven.annotations.Dictionary;
+import com.github.piotrlechowicz.raven.annotations.ManyCols;
+import com.github.piotrlechowicz.raven.annotations.ManyRows;
+import com.github.piotrlechowicz.raven.annotations.Parsable;
+import com.github.piotrlechowicz.raven.parsers.Parser;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates source of a {@link GeneratedReader} for a class with fields annotated with {@link Parsable}.
+ * <p>
+ * Each field is assigned directly with a value returned by the parser, lists are created with
+ * {@link GeneratedReader#parseList} and {@link GeneratedReader#parseMatrix}. A field whose value cannot be parsed
+ * is logged with {@link GeneratedReader#fieldNotSet} and left unset. If a value returned by a parser
+ * cannot be assigned to a field without reflection, reader is not generated.
+ * </p>
+ *
+ * @author plechowicz
+ */
+final class ReaderGenerator {
+
+	private static final String INDENT = "\t\t\t";
+
+	private final ProcessingEnvironment processingEnv;
+	private final Elements elements;
+	private final Types types;
+	private final TypeElement type;
+	private final String name;
+
+	private final TypeElement parsable;
+	private final TypeElement manyCols;
+	private final TypeElement manyRows;
+	private final TypeElement dictionary;
+	private final TypeMirror parser;
+	private final TypeMirror arrayList;
+
+	/**
+	 * Qualified name of a parser class and the name of a field which holds its instance
+	 */
+	private final Map<String, String> parserFields = new LinkedHashMap<>();
+
+	ReaderGenerator(ProcessingEnvironment processingEnv, TypeElement type, String name) {
+		this.processingEnv = processingEnv;
+		this.elements = processingEnv.getElementUtils();
+		this.types = processingEnv.getTypeUtils();
+		this.type = type;
+		this.name = name;
+		this.parsable = elements.getTypeElement(Parsable.class.getCanonicalName());
+		this.manyCols = elements.getTypeElement(ManyCols.class.getCanonicalName());
+		this.manyRows = elements.getTypeElement(ManyRows.class.getCanonicalName());
+		this.dictionary = elements.getTypeElement(Dictionary.class.getCanonicalName());
+		this.parser = types.erasure(elements.getTypeElement(Parser.class.getCanonicalName()).asType());
+		this.arrayList = types.erasure(elements.getTypeElement(ArrayList.class.getCanonicalName()).asType());
+	}
+
+	/**
+	 * @return source of a reader or {@code null} if reader cannot be generated
+	 */
+	String generate() {
+		StringBuilder body = new StringBuilder();
+		for (VariableElement field : Fields.getAnnotatedFields(type, parsable)) {
+			StringBuilder fieldBody = new StringBuilder();
+			if (!appendField(field, fieldBody)) {
+				return null;
+			}
+			appendGuarded(field, fieldBody, body);
+		}
+
+		String className = types.erasure(type.asType()).toString();
+		int lastDot = name.lastIndexOf('.');
+		StringBuilder source = new StringBuilder();
+		if (lastDot > 0) {
+			source.append("package ").append(name, 0, lastDot).append(";\n\n");
+		}
+		source.append("/**\n * Reader of {@link ").append(className).append("} generated by Raven annotation processor.\n */\n");
+		source.append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n");
+		source.append("public final class ").append(name.substring(lastDot + 1))
+				.append(" implements ").append(GeneratedReader.class.getCanonicalName()).append('<').append(className).append("> {\n\n");
+		for (Map.Entry<String, String> parserField : parserFields.entrySet()) {
+			source.append("\tprivate static final ").append(parserField.getKey()).append(' ').append(parserField.getValue())
+					.append(" = new ").append(parserField.getKey()).append("();\n");
+		}
+		source.append("\n\t@Override\n\tpublic void initialize(").append(className).append(" instance, ")
+				.append(Cells.class.getCanonicalName()).append(" cells) {\n");
+		source.append(body);
+		source.append("\t}\n}\n");
+		return source.toString();
+	}
+
+	private boolean appendField(VariableElement field, StringBuilder body) {
+		AnnotationMirror parsableMirror = Fields.getAnnotation(field, parsable);
+		int row = (Integer) Fields.getValue(elements, parsableMirror, "row");
+		int col = (Integer) Fields.getValue(elements, parsableMirror, "col");
+		DeclaredType parserType = (DeclaredType) Fields.getValue(elements, parsableMirror, "parser");
+		TypeElement parserElement = (TypeElement) parserType.asElement();
+		if (!isInstantiable(parserElement)) {
+			return skip(field, "parser " + parserElement.getSimpleName() + " has no public default constructor");
+		}
+		String parserField = getParserField(parserElement);
+		TypeMirror parsedType = getParsedType(parserType);
+		if (parsedType == null) {
+			return skip(field, "type parsed by " + parserElement.getSimpleName() + " is unknown");
+		}
+
+		AnnotationMirror manyColsMirror = Fields.getAnnotation(field, manyCols);
+		AnnotationMirror manyRowsMirror = Fields.getAnnotation(field, manyRows);
+		TypeMirror fieldType = field.asType();
+		String target = "instance." + field.getSimpleName();
+
+		if (manyColsMirror == null && manyRowsMirror == null) {
+			String cell = "cells.getValueAt(" + row + ", " + col + ")";
+			if (fieldType.getKind().isPrimitive()) {
+				TypeElement boxed = types.boxedClass((PrimitiveType) fieldType);
+				if (!types.isSameType(types.erasure(parsedType), boxed.asType())) {
+					return skip(field, "parser does not return " + boxed.getSimpleName());
+				}
+				body.append(INDENT).append("{\n");
+				body.append(INDENT).append('\t').append(boxed.getQualifiedName()).append(" value = ").append(parserField)
+						.append(".parse(").append(cell).append(");\n");
+				body.append(INDENT).append("\tif (value != null) {\n");
+				body.append(INDENT).append("\t\t").append(target).append(" = value;\n");
+				body.append(INDENT).append("\t}\n");
+				body.append(INDENT).append("}\n");
+				return true;
+			}
+			TypeMirror fieldErasure = types.erasure(fieldType);
+			if (!types.isAssignable(types.erasure(parsedType), fieldErasure)) {
+				return skip(field, "parser does not return " + fieldErasure);
+			}
+			body.append(INDENT).append(target).append(" = (").append(fieldErasure).append(") ").append(parserField)
+					.append(".parse(").append(cell).append(");\n");
+			return true;
+		}
+
+		if (Fields.getAnnotation(field, dictionary) != null) {
+			return skip(field, "dictionary fields are parsed by the library");
+		}
+		TypeMirror fieldErasure = types.erasure(fieldType);
+		if (!types.isAssignable(arrayList, fieldErasure)) {
+			return skip(field, "list cannot be assigned to " + fieldErasure);
+		}
+		String values;
+		String parse;
+		if (manyRowsMirror == null) {
+			values = "cells.getManyCols(" + row + ", " + col + ", " + Fields.getValue(elements, manyColsMirror, "value") + ")";
+			parse = "parseList";
+		} else if (manyColsMirror == null) {
+			values = "cells.getManyRows(" + row + ", " + col + ", " + Fields.getValue(elements, manyRowsMirror, "value") + ")";
+			parse = "parseList";
+		} else {
+			values = "cells.getManyColsAndManyRows(" + row + ", " + col + ", "
+					+ Fields.getValue(elements, manyRowsMirror, "value") + ", "
+					+ Fields.getValue(elements, manyColsMirror, "value") + ")";
+			parse = "parseMatrix";
+		}
+		body.append(INDENT).append(target).append(" = (").append(fieldErasure).append(") ")
+				.append(GeneratedReader.class.getCanonicalName()).append('.').append(parse)
+				.append('(').append(parserField).append(", ").append(values).append(");\n");
+		return true;
+	}
+
+	/**
+	 * Appends code of a field in a block which logs values which cannot be parsed and leaves the field unset,
+	 * as readers using reflection do
+	 */
+	private void appendGuarded(VariableElement field, StringBuilder fieldBody, StringBuilder body) {
+		AnnotationMirror parsableMirror = Fields.getAnnotation(field, parsable);
+		body.append("\t\ttry {\n");
+		body.append(fieldBody);
+		body.append("\t\t} catch (IllegalArgumentException e) {\n");
+		body.append("\t\t\t").append(GeneratedReader.class.getCanonicalName()).append(".fieldNotSet(\"")
+				.append(field.getSimpleName()).append("\", ").append(Fields.getValue(elements, parsableMirror, "row"))
+				.append(", ").append(Fields.getValue(elements, parsableMirror, "col")).append(", e);\n");
+		body.append("\t\t}\n");
+	}
+
+	private String getParserField(TypeElement parserElement) {
+		String parserName = parserElement.getQualifiedName().toString();
+		return parserFields.computeIfAbsent(parserName, key -> "PARSER_" + parserFields.size());
+	}
+
+	/**
+	 * @return type argument of {@link Parser} implemented by the parser
+	 */
+	private TypeMirror getParsedType(TypeMirror parserType) {
+		for (TypeMirror supertype : types.directSupertypes(parserType)) {
+			if (types.isSameType(types.erasure(supertype), parser)) {
+				List<? extends TypeMirror> arguments = ((DeclaredType) supertype).getTypeArguments();
+				return arguments.isEmpty() ? null : arguments.get(0);
+			}
+			TypeMirror parsedType = getParsedType(supertype);
+			if (parsedType != null) {
+				return parsedType;
+			}
+		}
+		return null;
+	}
+
+	private boolean isInstantiable(TypeElement parserElement) {
+		if (!parserElement.getModifiers().contains(Modifier.PUBLIC) || parserElement.getModifiers().contains(Modifier.ABSTRACT)) {
+			return false;
+		}
+		if (parserElement.getNestingKind() == NestingKind.MEMBER && !parserElement.getModifiers().contains(Modifier.STATIC)) {
+			return false;
+		}
+		for (ExecutableElement constructor : ElementFilter.constructorsIn(parserElement.getEnclosedElements())) {
+			if (constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean skip(VariableElement field, String reason) {
+		processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+				"Raven reader is not generated, reflection is used instead: " + reason, field);
+		return false;
+	}
+}
@@ -0,0 +1,143 @@
+package com.github.piotrlechowicz.raven.processor;
+
+import com.github.piotrlechowicz.raven.FormatPlan;
+import com.github.piotrlechowicz.raven.GeneratedSaver;
+import com.github.piotrlechowicz.raven.annotations.Savable;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Generates source of a {@link GeneratedSaver} for a class with fields annotated with {@link Savable}.
+ * <p>
+ * Header names and values are formatted in the order of declaration of the fields, the same way as
+ * {@link com.github.piotrlechowicz.raven.RavenSaver} does it with reflection. Formats are compiled once
+ * into {@link FormatPlan}s held in static fields; {@code int}, {@code long} and {@code double} fields are
+ * formatted without boxing.
+ * </p>
+ *
+ * @author plechowicz
+ */
+final class SaverGenerator {
+
+	private static final String INDENT = "\t\t";
+
+	private final Elements elements;
+	private final Types types;
+	private final TypeElement type;
+	private final String name;
+	private final TypeElement savable;
+
+	/**
+	 * Format and the name of a field which holds its plan
+	 */
+	private final Map<String, String> formatFields = new LinkedHashMap<>();
+
+	SaverGenerator(ProcessingEnvironment processingEnv, TypeElement type, String name) {
+		this.elements = processingEnv.getElementUtils();
+		this.types = processingEnv.getTypeUtils();
+		this.type = type;
+		this.name = name;
+		this.savable = elements.getTypeElement(Savable.class.getCanonicalName());
+	}
+
+	String generate() {
+		StringBuilder header = new StringBuilder();
+		StringBuilder values = new StringBuilder();
+		for (VariableElement field : Fields.getAnnotatedFields(type, savable)) {
+			AnnotationMirror mirror = Fields.getAnnotation(field, savable);
+			String headerName = (String) Fields.getValue(elements, mirror, "header");
+			if (headerName.isEmpty()) {
+				headerName = field.getSimpleName().toString();
+			}
+			String headerFormat = (String) Fields.getValue(elements, mirror, "headerFormat");
+			String valueFormat = (String) Fields.getValue(elements, mirror, "valueFormat");
+
+			header.append(INDENT).append(getFormatField(headerFormat)).append(".appendTo(builder, ")
+					.append(quote(headerName)).append(");\n");
+			header.append(INDENT).append("builder.append(delimiter);\n");
+			values.append(INDENT).append(getFormatField(valueFormat)).append(".appendTo(builder, ")
+					.append(isFormattedWithoutBoxing(field) ? "" : "(Object) ").append("row.")
+					.append(field.getSimpleName()).append(");\n");
+			values.append(INDENT).append("builder.append(delimiter);\n");
+		}
+
+		String className = types.erasure(type.asType()).toString();
+		int lastDot = name.lastIndexOf('.');
+		StringBuilder source = new StringBuilder();
+		if (lastDot > 0) {
+			source.append("package ").append(name, 0, lastDot).append(";\n\n");
+		}
+		source.append("/**\n * Saver of {@link ").append(className).append("} generated by Raven annotation processor.\n */\n");
+		source.append("public final class ").append(name.substring(lastDot + 1))
+				.append(" implements ").append(GeneratedSaver.class.getCanonicalName()).append('<').append(className).append("> {\n\n");
+		for (Map.Entry<String, String> formatField : formatFields.entrySet()) {
+			source.append("\tprivate static final ").append(FormatPlan.class.getCanonicalName()).append(' ')
+					.append(formatField.getValue()).append(" = ").append(FormatPlan.class.getCanonicalName())
+					.append(".compile(").append(quote(formatField.getKey())).append(");\n");
+		}
+		if (!formatFields.isEmpty()) {
+			source.append('\n');
+		}
+		source.append("\t@Override\n\tpublic void appendHeader(StringBuilder builder, String delimiter) {\n");
+		source.append(header);
+		source.append("\t}\n\n");
+		source.append("\t@Override\n\tpublic void appendValues(").append(className).append(" row, StringBuilder builder, String delimiter) {\n");
+		source.append(values);
+		source.append("\t}\n}\n");
+		return source.toString();
+	}
+
+	private String getFormatField(String format) {
+		return formatFields.computeIfAbsent(format, key -> "FORMAT_" + formatFields.size());
+	}
+
+	/**
+	 * @return {@code true} if field is passed to a primitive overload of {@link FormatPlan#appendTo}, other
+	 * primitives are boxed explicitly, so e.g. {@code byte} is not widened to {@code int}
+	 */
+	private static boolean isFormattedWithoutBoxing(VariableElement field) {
+		TypeKind kind = field.asType().getKind();
+		return !kind.isPrimitive() || kind == TypeKind.INT || kind == TypeKind.LONG || kind == TypeKind.DOUBLE;
+	}
+
+	/**
+	 * @return Java string literal of the value
+	 */
+	static String quote(String value) {
+		StringBuilder builder = new StringBuilder("\"");
+		for (char c : value.toCharArray()) {
+			switch (c) {
+				case '"':
+					builder.append("\\\"");
+					break;
+				case '\\':
+					builder.append("\\\\");
+					break;
+				case '\n':
+					builder.append("\\n");
+					break;
+				case '\r':
+					builder.append("\\r");
+					break;
+				case '\t':
+					builder.append("\\t");
+					break;
+				default:
+					if (c < 0x20 || c > 0x7e) {
+						builder.append(String.format("\\u%04x", (int) c));
+					} else {
+						builder.append(c);
+					}
+			}
+		}
+		return builder.append('"').toString();
+	}
+}
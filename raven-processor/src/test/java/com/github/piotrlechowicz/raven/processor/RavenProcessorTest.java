@@ -0,0 +1,142 @@
+package com.github.piotrlechowicz.raven.processor;
+
+import com.github.piotrlechowicz.raven.FlatFileReader;
+import com.github.piotrlechowicz.raven.RavenSaver;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author plechowicz
+ */
+public class RavenProcessorTest {
+
+	private static final String SOURCE = "package sample;\n" +
+			"import com.github.piotrlechowicz.raven.annotations.*;\n" +
+			"import com.github.piotrlechowicz.raven.parsers.*;\n" +
+			"import java.util.List;\n" +
+			"public class Network {\n" +
+			"	@Savable @Parsable(row = 0, col = 0) public String name;\n" +
+			"	@Savable(valueFormat = \"%d\") @Parsable(row = 1, col = 0, parser = IntegerParser.class) public int nrOfNodes;\n" +
+			"	@Parsable(row = 1, col = 1, parser = DoubleParser.class) @ManyCols public List<Double> weights;\n" +
+			"	@Parsable(row = 2, col = 0, parser = IntegerParser.class) @ManyCols(2) @ManyRows public List<List<Integer>> edges;\n" +
+			"	public static class Hidden {\n" +
+			"		@Parsable private String value;\n" +
+			"	}\n" +
+			"}\n";
+
+	private Path outputDir;
+	private ClassLoader classLoader;
+
+	@Before
+	public void setUp() throws Exception {
+		outputDir = Files.createTempDirectory("raven-processor");
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		JavaFileObject source = new SimpleJavaFileObject(URI.create("string:///sample/Network.java"), JavaFileObject.Kind.SOURCE) {
+			@Override
+			public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+				return SOURCE;
+			}
+		};
+		List<String> options = Arrays.asList("-d", outputDir.toString(), "-classpath", System.getProperty("java.class.path"),
+				"-processor", RavenProcessor.class.getName());
+		boolean compiled = compiler.getTask(null, null, null, options, null, Collections.singletonList(source)).call();
+		assertTrue(compiled);
+		classLoader = new URLClassLoader(new URL[]{outputDir.toUri().toURL()}, getClass().getClassLoader());
+	}
+
+	@Test
+	public void generatesOnlyAccessibleClasses() {
+		assertTrue(new File(outputDir.toFile(), "sample/NetworkRavenReader.class").exists());
+		assertTrue(new File(outputDir.toFile(), "sample/NetworkRavenSaver.class").exists());
+		assertTrue(!new File(outputDir.toFile(), "sample/Network_HiddenRavenReader.class").exists());
+	}
+
+	@Test
+	public void generatedClassesAreUsed() throws Exception {
+		Class<?> clazz = classLoader.loadClass("sample.Network");
+
+		Object reader = invokeRaven("GeneratedClasses", "findReader", clazz);
+		Object saver = invokeRaven("GeneratedClasses", "findSaver", clazz);
+		assertEquals("sample.NetworkRavenReader", reader.getClass().getName());
+		assertEquals("sample.NetworkRavenSaver", saver.getClass().getName());
+		assertSame(classLoader, reader.getClass().getClassLoader());
+		assertNull(invokeRaven("GeneratedClasses", "findReader", classLoader.loadClass("sample.Network$Hidden")));
+
+		Object plan = invokeRaven("BindingPlan", "of", clazz);
+		Method getGeneratedReader = plan.getClass().getDeclaredMethod("getGeneratedReader");
+		getGeneratedReader.setAccessible(true);
+		assertSame(reader.getClass(), getGeneratedReader.invoke(plan).getClass());
+	}
+
+	@Test
+	public void generatedReaderInitializesFields() throws Exception {
+		Path file = Files.createTempFile(outputDir, "network", ".txt");
+		Files.write(file, Arrays.asList("euro", "10 0.5 1.5", "1 2", "3 4"), StandardCharsets.UTF_8);
+
+		Class<?> clazz = classLoader.loadClass("sample.Network");
+		Object network = new FlatFileReader<>(clazz).create(file.toString());
+
+		assertEquals("euro", clazz.getField("name").get(network));
+		assertEquals(10, clazz.getField("nrOfNodes").get(network));
+		assertEquals(Arrays.asList(0.5, 1.5), clazz.getField("weights").get(network));
+		assertEquals(Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3, 4)), clazz.getField("edges").get(network));
+	}
+
+	@Test
+	public void generatedReaderLeavesUnparsableFieldsUnset() throws Exception {
+		Path file = Files.createTempFile(outputDir, "network", ".txt");
+		Files.write(file, Arrays.asList("euro", "ten 0.5 1.5", "1 2", "3 x"), StandardCharsets.UTF_8);
+
+		Class<?> clazz = classLoader.loadClass("sample.Network");
+		Object network = new FlatFileReader<>(clazz).create(file.toString());
+
+		assertEquals("euro", clazz.getField("name").get(network));
+		assertEquals(0, clazz.getField("nrOfNodes").get(network));
+		assertEquals(Arrays.asList(0.5, 1.5), clazz.getField("weights").get(network));
+		assertEquals(null, clazz.getField("edges").get(network));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void generatedSaverFormatsFields() throws Exception {
+		Class<Object> clazz = (Class<Object>) classLoader.loadClass("sample.Network");
+		Object network = clazz.getDeclaredConstructor().newInstance();
+		clazz.getField("name").set(network, "euro");
+		clazz.getField("nrOfNodes").set(network, 10);
+
+		String saved = new RavenSaver<>(clazz).getValueAsString(Collections.singletonList(network), true);
+
+		assertEquals("name;nrOfNodes;\neuro;10;", saved);
+	}
+
+	/**
+	 * Invokes package-private static method of a class in package of the library
+	 */
+	private static Object invokeRaven(String className, String methodName, Class<?> clazz) throws Exception {
+		Method method = Class.forName(FlatFileReader.class.getPackage().getName() + "." + className)
+				.getDeclaredMethod(methodName, Class.class);
+		method.setAccessible(true);
+		return method.invoke(null, clazz);
+	}
+}
@@ -0,0 +1,96 @@
+package com.github.piotrlechowicz.raven;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Reads whole file with {@link AsynchronousFileChannel}, no thread waits for the disk while the file is read.
+ *
+ * @author plechowicz
+ */
+final class AsyncFileRead implements CompletionHandler<Integer, Void> {
+
+	private final AsynchronousFileChannel channel;
+	private final ByteBuffer buffer;
+	private final CompletableFuture<ByteBuffer> result = new CompletableFuture<>();
+
+	private AsyncFileRead(AsynchronousFileChannel channel, ByteBuffer buffer) {
+		this.channel = channel;
+		this.buffer = buffer;
+	}
+
+	/**
+	 * Starts reading a file
+	 *
+	 * @param path path of a file
+	 * @return future completed with content of the file (from position 0 till limit of a buffer),
+	 * with {@code null} if file is larger than 2 GB, or with {@link IOException} when file cannot be read
+	 */
+	static CompletableFuture<ByteBuffer> readAll(Path path) {
+		AsynchronousFileChannel channel;
+		long size;
+		try {
+			channel = AsynchronousFileChannel.open(path, StandardOpenOption.READ);
+		} catch (IOException | RuntimeException e) {
+			return failed(e);
+		}
+		try {
+			size = channel.size();
+		} catch (IOException e) {
+			close(channel);
+			return failed(e);
+		}
+		if (size > Integer.MAX_VALUE) {
+			close(channel);
+			return CompletableFuture.completedFuture(null);
+		}
+		AsyncFileRead read = new AsyncFileRead(channel, ByteBuffer.allocate((int) size));
+		read.readNext();
+		return read.result;
+	}
+
+	private void readNext() {
+		if (!buffer.hasRemaining()) {
+			close(channel);
+			buffer.flip();
+			result.complete(buffer);
+			return;
+		}
+		channel.read(buffer, buffer.position(), null, this);
+	}
+
+	@Override
+	public void completed(Integer read, Void attachment) {
+		if (read < 0) {
+			// file was truncated while reading
+			buffer.limit(buffer.position());
+			buffer.position(buffer.limit());
+		}
+		readNext();
+	}
+
+	@Override
+	public void failed(Throwable e, Void attachment) {
+		close(channel);
+		result.completeExceptionally(e);
+	}
+
+	private static CompletableFuture<ByteBuffer> failed(Throwable e) {
+		CompletableFuture<ByteBuffer> future = new CompletableFuture<>();
+		future.completeExceptionally(e);
+		return future;
+	}
+
+	private static void close(AsynchronousFileChannel channel) {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			// nothing more can be done with the channel
+		}
+	}
+}
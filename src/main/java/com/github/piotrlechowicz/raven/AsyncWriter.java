@@ -0,0 +1,375 @@
+package com.github.piotrlechowicz.raven;
+
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Writes rows to a file in the background. Created by {@link FlatFileSaver#openAsyncWriter(int, BackpressurePolicy)},
+ * {@link FlatFileSaver#openAsyncLineWriter(int, BackpressurePolicy)} and
+ * {@link RavenSaver#openAsyncWriter(String, boolean, boolean, int, BackpressurePolicy)}.
+ * <p>
+ * Producers (any number of threads) only put rows into a bounded lock-free queue. A single writer thread takes
+ * all queued rows, formats them and writes them with one write to the file (group commit), so lines of
+ * different producers are never interleaved. When the queue is full, {@link BackpressurePolicy} decides whether
+ * the producer waits, the row is dropped or the producer writes the queued rows itself.
+ * </p>
+ * <p>
+ * Writer has to be closed, {@link #close()} writes all rows submitted before it is called. A row which cannot be
+ * formatted (e.g. {@link IllegalRowFormatException}) is logged, counted by {@link #getRejected()} and skipped,
+ * other rows are written. If writing to the file fails, no more rows are written and the failure is thrown by
+ * the next {@link #submit(Object)}, {@link #flush()} or {@link #close()}.
+ * </p>
+ *
+ * @param <R> type of rows
+ * @author plechowicz
+ */
+public final class AsyncWriter<R> implements AutoCloseable {
+
+	private static final Logger log = Logger.getLogger(AsyncWriter.class);
+
+	/**
+	 * Number of characters formatted before they are written to a file, when many rows are queued
+	 */
+	private static final int CHUNK_SIZE = 64 << 10;
+
+	/**
+	 * Longest time for which waiting producers and {@link #flush()} sleep, the writer thread sleeps until it is woken
+	 */
+	private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private final RingBuffer<R> queue;
+	private final BackpressurePolicy policy;
+	private final RowFormatter<? super R> formatter;
+	private final ChannelOutput output;
+
+	/**
+	 * Held by the thread which takes rows from the queue and writes them - the writer thread or a producer
+	 * in {@link BackpressurePolicy#CALLER_RUNS} mode
+	 */
+	private final ReentrantLock writeLock = new ReentrantLock();
+	private final StringBuilder builder = new StringBuilder(CHUNK_SIZE + CHUNK_SIZE / 4);
+	private final Thread writerThread;
+
+	private volatile boolean writerSleeping;
+	private volatile boolean closed;
+	private volatile Throwable failure;
+
+	/**
+	 * Number of rows taken from the queue and written to the file
+	 */
+	private volatile long committed;
+
+	private final AtomicLong submitted = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	private final AtomicLong callerRuns = new AtomicLong();
+	private volatile long written;
+	private volatile long rejected;
+	private volatile long batches;
+	private volatile long totalLatencyNanos;
+	private volatile long maxLatencyNanos;
+
+	/**
+	 * Rows formatted since the last commit: their number, sum and minimum of times of publishing
+	 */
+	private long batchRows;
+	private long batchPublishTimes;
+	private long batchOldestPublishTime;
+
+	AsyncWriter(Path path, int capacity, BackpressurePolicy policy, RowFormatter<? super R> formatter) throws IOException {
+		this.queue = new RingBuffer<>(capacity);
+		this.policy = policy;
+		this.formatter = formatter;
+		this.output = ChannelOutput.append(path);
+		this.writerThread = new Thread(this::run, "raven-async-writer-" + path.getFileName());
+		writerThread.setDaemon(true);
+		writerThread.start();
+	}
+
+	/**
+	 * Submits row to be written
+	 *
+	 * @param row row to write
+	 * @return {@code false} if row was dropped because queue was full
+	 * @throws java.io.IOException if writing of previous rows failed, or row was written by the caller and it failed
+	 */
+	public boolean submit(R row) throws IOException {
+		ensureOpen();
+		submitted.incrementAndGet();
+		while (!queue.offer(row)) {
+			if (policy == BackpressurePolicy.DROP) {
+				dropped.incrementAndGet();
+				return false;
+			} else if (policy == BackpressurePolicy.CALLER_RUNS) {
+				callerRuns.incrementAndGet();
+				writeLock.lock();
+				try {
+					drainUntil(queue.getTail());
+					writeRow(row, System.nanoTime());
+					commit();
+				} catch (IOException | RuntimeException e) {
+					fail(e);
+					throw e;
+				} finally {
+					writeLock.unlock();
+				}
+				return true;
+			}
+			wakeWriter();
+			LockSupport.parkNanos(PARK_NANOS);
+			ensureOpen();
+		}
+		if (writerSleeping) {
+			wakeWriter();
+		}
+		return true;
+	}
+
+	/**
+	 * Waits until all rows submitted before are written to the file
+	 *
+	 * @throws java.io.IOException if writing failed
+	 */
+	public void flush() throws IOException {
+		ensureOpen();
+		long target = queue.getTail();
+		while (committed < target && failure == null) {
+			wakeWriter();
+			LockSupport.parkNanos(PARK_NANOS);
+		}
+		throwFailure();
+	}
+
+	/**
+	 * Writes all submitted rows, stops the writer thread and closes the file
+	 *
+	 * @throws java.io.IOException if writing failed
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		wakeWriter();
+		try {
+			writerThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while closing writer", e);
+		}
+		try {
+			output.close();
+		} catch (IOException e) {
+			fail(e);
+		}
+		throwFailure();
+	}
+
+	/**
+	 * @return number of rows in the queue
+	 */
+	public long getQueueDepth() {
+		return queue.getTail() - queue.getHead();
+	}
+
+	public int getCapacity() {
+		return queue.capacity();
+	}
+
+	/**
+	 * @return number of submitted rows, including dropped ones
+	 */
+	public long getSubmitted() {
+		return submitted.get();
+	}
+
+	public long getWritten() {
+		return written;
+	}
+
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	/**
+	 * @return number of rows which could not be formatted and were not written
+	 */
+	public long getRejected() {
+		return rejected;
+	}
+
+	/**
+	 * @return number of times the queue was full and a producer wrote queued rows itself
+	 */
+	public long getCallerRuns() {
+		return callerRuns.get();
+	}
+
+	/**
+	 * @return number of writes to the file
+	 */
+	public long getBatches() {
+		return batches;
+	}
+
+	/**
+	 * @return average time between submitting of a row and writing it to the file, in nanoseconds
+	 */
+	public long getAverageLatencyNanos() {
+		long rows = written;
+		return rows == 0 ? 0 : totalLatencyNanos / rows;
+	}
+
+	/**
+	 * @return maximal time between submitting of a row and writing it to the file, in nanoseconds
+	 */
+	public long getMaxLatencyNanos() {
+		return maxLatencyNanos;
+	}
+
+	private void run() {
+		while (true) {
+			boolean wasClosed = closed;
+			writeLock.lock();
+			try {
+				if (failure == null) {
+					drain();
+				}
+			} catch (IOException | RuntimeException e) {
+				fail(e);
+			} finally {
+				writeLock.unlock();
+			}
+			if (wasClosed && (committed == queue.getTail() || failure != null)) {
+				return;
+			}
+			if (failure != null || queue.getHead() == queue.getTail()) {
+				// producers wake the writer when they see it sleeping, close() always wakes it
+				writerSleeping = true;
+				if ((failure != null || queue.getHead() == queue.getTail()) && !closed) {
+					LockSupport.park(this);
+				}
+				writerSleeping = false;
+			}
+		}
+	}
+
+	/**
+	 * Writes all published rows with as few writes as possible, called with {@link #writeLock} held
+	 */
+	private void drain() throws IOException {
+		R row;
+		while ((row = queue.poll()) != null) {
+			writeRow(row, queue.getPublishTime());
+			if (builder.length() >= CHUNK_SIZE) {
+				output.write(builder);
+				builder.setLength(0);
+			}
+		}
+		commit();
+	}
+
+	/**
+	 * Writes rows till the position in the queue, waiting for rows which are claimed but not published yet,
+	 * so rows of the caller which are queued are written before its next row. Called with {@link #writeLock} held
+	 */
+	private void drainUntil(long position) throws IOException {
+		while (queue.getHead() < position) {
+			R row = queue.poll();
+			if (row == null) {
+				Thread.yield();
+				continue;
+			}
+			writeRow(row, queue.getPublishTime());
+			if (builder.length() >= CHUNK_SIZE) {
+				output.write(builder);
+				builder.setLength(0);
+			}
+		}
+	}
+
+	/**
+	 * Formats row after rows formatted before, row which cannot be formatted is removed from the builder and
+	 * skipped. Called with {@link #writeLock} held
+	 */
+	private void writeRow(R row, long publishTime) {
+		int rowStart = builder.length();
+		try {
+			formatter.append(row, builder);
+		} catch (RuntimeException e) {
+			builder.setLength(rowStart);
+			rejected++;
+			log.error("Unable to format row, it is not written", e);
+			return;
+		}
+		if (batchRows++ == 0) {
+			batchOldestPublishTime = publishTime;
+		}
+		batchPublishTimes += publishTime;
+	}
+
+	/**
+	 * Writes formatted rows to the file and updates metrics, called with {@link #writeLock} held
+	 */
+	private void commit() throws IOException {
+		if (batchRows == 0) {
+			// nothing was taken from the queue or all taken rows were rejected
+			committed = queue.getHead();
+			return;
+		}
+		output.write(builder);
+		builder.setLength(0);
+		output.flush();
+		long now = System.nanoTime();
+		totalLatencyNanos += batchRows * now - batchPublishTimes;
+		maxLatencyNanos = Math.max(maxLatencyNanos, now - batchOldestPublishTime);
+		written += batchRows;
+		batches++;
+		batchRows = 0;
+		batchPublishTimes = 0;
+		committed = queue.getHead();
+	}
+
+	private void wakeWriter() {
+		LockSupport.unpark(writerThread);
+	}
+
+	private void fail(Throwable e) {
+		if (failure == null) {
+			log.error("Unable to write rows", e);
+			failure = e;
+		}
+	}
+
+	private void ensureOpen() throws IOException {
+		throwFailure();
+		if (closed) {
+			throw new IOException("Writer is closed");
+		}
+	}
+
+	private void throwFailure() throws IOException {
+		Throwable e = failure;
+		if (e instanceof IOException) {
+			throw new IOException(e.getMessage(), e);
+		} else if (e != null) {
+			throw new IOException("Unable to write rows", e);
+		}
+	}
+
+	/**
+	 * Formats a row into lines of a file
+	 *
+	 * @param <R> type of rows
+	 */
+	@FunctionalInterface
+	interface RowFormatter<R> {
+		void append(R row, StringBuilder builder);
+	}
+}
@@ -0,0 +1,24 @@
+package com.github.piotrlechowicz.raven;
+
+/**
+ * Defines what {@link AsyncWriter#submit(Object)} does when the queue of rows waiting to be written is full.
+ *
+ * @author plechowicz
+ */
+public enum BackpressurePolicy {
+
+	/**
+	 * Producer waits until there is space in the queue
+	 */
+	BLOCK,
+
+	/**
+	 * Row is not saved and {@code submit} returns {@code false}
+	 */
+	DROP,
+
+	/**
+	 * Producer takes over the writer: writes all queued rows and its own row, so order of rows is kept
+	 */
+	CALLER_RUNS
+}
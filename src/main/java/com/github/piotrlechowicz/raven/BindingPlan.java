@@ -0,0 +1,357 @@
+package com.github.piotrlechowicz.raven;
+
+import com.github.piotrlechowicz.raven.FieldAccessor.PrimitiveStore;
+import com.github.piotrlechowicz.raven.annotations.Dictionary;
+import com.github.piotrlechowicz.raven.annotations.ManyCols;
+import com.github.piotrlechowicz.raven.annotations.ManyRows;
+import com.github.piotrlechowicz.raven.annotations.Parsable;
+import com.github.piotrlechowicz.raven.parsers.DummyParser;
+import com.github.piotrlechowicz.raven.parsers.Parser;
+import com.github.piotrlechowicz.raven.parsers.PrimitiveParser;
+import org.apache.log4j.Logger;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Binding plan of a class - all fields annotated with {@link Parsable} resolved once per class.
+ * <p>
+ * Plans are cached process-wide, so reflection (reading annotations, making fields accessible and creating
+ * parsers) is done only on the first use of a class. Parsers are shared between all plans, therefore
+ * they have to be stateless.
+ * </p>
+ *
+ * @param <T> class which is initialized with the plan
+ * @author plechowicz
+ */
+final class BindingPlan<T> {
+
+	private static final Logger log = Logger.getLogger(BindingPlan.class);
+
+	/**
+	 * Denotes that rows/columns are used till the end of a file
+	 */
+	static final int TILL_END = -1;
+
+	private static final ClassValue<BindingPlan<?>> PLANS = new ClassValue<BindingPlan<?>>() {
+		@Override
+		protected BindingPlan<?> computeValue(Class<?> type) {
+			return new BindingPlan<>(type);
+		}
+	};
+
+	private static final ClassValue<Parser<?>> PARSERS = new ClassValue<Parser<?>>() {
+		@Override
+		protected Parser<?> computeValue(Class<?> type) {
+			try {
+				return (Parser<?>) type.getDeclaredConstructor().newInstance();
+			} catch (ReflectiveOperationException e) {
+				log.warn(String.format("Unable to create parser=%s. " +
+						"\nReturning DummyParser", type));
+				return new DummyParser();
+			}
+		}
+	};
+
+	private final Class<T> clazz;
+	private final Constructor<T> constructor;
+	private final List<FieldBinding> fieldBindings;
+
+	/**
+	 * Index of the last row and column used by any field, {@link #TILL_END} if all rows/columns are needed
+	 */
+	private final int lastRow;
+	private final int lastCol;
+
+	/**
+	 * Reader generated by the annotation processor, {@code null} if it does not exist
+	 */
+	private final GeneratedReader<T> generatedReader;
+
+	private volatile CompiledReader<T> compiledReader;
+
+	private BindingPlan(Class<T> clazz) {
+		this.clazz = clazz;
+		this.constructor = findConstructor(clazz);
+		List<FieldBinding> bindings = new ArrayList<>();
+		for (Field field : clazz.getDeclaredFields()) {
+			Parsable parsable = field.getAnnotation(Parsable.class);
+			if (parsable != null) {
+				field.setAccessible(true);
+				bindings.add(new FieldBinding(field, parsable, field.getAnnotation(ManyCols.class),
+						field.getAnnotation(ManyRows.class)));
+			}
+		}
+		this.fieldBindings = Collections.unmodifiableList(bindings);
+		this.lastRow = computeLast(bindings, true);
+		this.lastCol = computeLast(bindings, false);
+		this.generatedReader = GeneratedClasses.findReader(clazz);
+	}
+
+	/**
+	 * Gets cached plan for a class, creates it on the first call
+	 *
+	 * @param clazz class to be initialized
+	 * @param <T>   type of class
+	 * @return binding plan
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> BindingPlan<T> of(Class<T> clazz) {
+		return (BindingPlan<T>) PLANS.get(clazz);
+	}
+
+	/**
+	 * Gets shared instance of a parser
+	 *
+	 * @param parserClass class of parser
+	 * @return parser, or {@link DummyParser} if parser cannot be created
+	 */
+	static Parser<?> getParser(Class<?> parserClass) {
+		return PARSERS.get(parserClass);
+	}
+
+	List<FieldBinding> getFieldBindings() {
+		return fieldBindings;
+	}
+
+	/**
+	 * @return index of the last row used by any field or {@link #TILL_END}
+	 */
+	int getLastRow() {
+		return lastRow;
+	}
+
+	/**
+	 * @return index of the last column used by any field or {@link #TILL_END}
+	 */
+	int getLastCol() {
+		return lastCol;
+	}
+
+	GeneratedReader<T> getGeneratedReader() {
+		return generatedReader;
+	}
+
+	/**
+	 * Gets binding plan compiled for {@link ReaderEngine#COMPILED}, compiles it on the first call
+	 *
+	 * @return compiled reader
+	 */
+	CompiledReader<T> getCompiledReader() {
+		CompiledReader<T> reader = compiledReader;
+		if (reader == null) {
+			reader = new CompiledReader<>(this);
+			compiledReader = reader;
+		}
+		return reader;
+	}
+
+	T newInstance() {
+		if (constructor == null) {
+			log.warn("Unable to create instance of: " + clazz);
+			throw new RuntimeException("No default constructor in " + clazz);
+		}
+		try {
+			return constructor.newInstance();
+		} catch (ReflectiveOperationException e) {
+			log.warn("Unable to create instance of: " + clazz);
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	/**
+	 * Creates new instance with fields annotated with {@link Parsable} copied from source. Lists and arrays
+	 * created by the reader (for fields with {@link ManyCols} or {@link ManyRows}) are copied deeply, values
+	 * created by parsers are shared.
+	 *
+	 * @param source instance to copy
+	 * @return copy
+	 */
+	T copy(T source) {
+		T copy = newInstance();
+		for (FieldBinding binding : fieldBindings) {
+			binding.getAccessor().set(copy, copyValue(binding, binding.getAccessor().get(source)));
+		}
+		return copy;
+	}
+
+	private static Object copyValue(FieldBinding binding, Object value) {
+		if (binding.getMode() == Mode.SINGLE_CELL || value == null) {
+			return value;
+		}
+		if (binding.isPrimitiveArray()) {
+			return copyArray(value);
+		}
+		if (binding.getMode() == Mode.MANY_COLS_AND_MANY_ROWS) {
+			List<?> rows = (List<?>) value;
+			List<Object> copy = new ArrayList<>(rows.size());
+			for (Object row : rows) {
+				copy.add(new ArrayList<>((List<?>) row));
+			}
+			return copy;
+		}
+		return new ArrayList<>((List<?>) value);
+	}
+
+	/**
+	 * Copies one or two dimensional array of primitives
+	 */
+	private static Object copyArray(Object array) {
+		int length = Array.getLength(array);
+		Object copy = Array.newInstance(array.getClass().getComponentType(), length);
+		if (array.getClass().getComponentType().isPrimitive()) {
+			System.arraycopy(array, 0, copy, 0, length);
+		} else {
+			for (int i = 0; i < length; i++) {
+				Object row = Array.get(array, i);
+				Array.set(copy, i, row == null ? null : copyArray(row));
+			}
+		}
+		return copy;
+	}
+
+	private static int computeLast(List<FieldBinding> bindings, boolean rows) {
+		int last = 0;
+		for (FieldBinding binding : bindings) {
+			int start = rows ? binding.getRow() : binding.getCol();
+			int size = rows ? binding.getRowSize() : binding.getColSize();
+			if (size == TILL_END) {
+				return TILL_END;
+			}
+			last = Math.max(last, start + size - 1);
+		}
+		return last;
+	}
+
+	private static <T> Constructor<T> findConstructor(Class<T> clazz) {
+		try {
+			return clazz.getDeclaredConstructor();
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * How field is initialized from a text file
+	 */
+	enum Mode {
+		SINGLE_CELL, MANY_COLS, MANY_ROWS, MANY_COLS_AND_MANY_ROWS
+	}
+
+	/**
+	 * Resolved position, size and parser of a single field
+	 */
+	static final class FieldBinding {
+
+		private final Field field;
+		private final FieldAccessor accessor;
+		private final Mode mode;
+		private final int row;
+		private final int col;
+		private final int rowSize;
+		private final int colSize;
+		private final Parser<?> parser;
+		private final PrimitiveParser<?> primitiveParser;
+		/**
+		 * Store of a single primitive value, chosen once for the field
+		 */
+		private final PrimitiveStore primitiveStore;
+		/**
+		 * Denotes that field is an array of primitives, see {@link PrimitiveArrays}
+		 */
+		private final boolean primitiveArray;
+		/**
+		 * Denotes that values of the field are parsed with {@link TokenDictionary}
+		 */
+		private final boolean dictionary;
+
+		private FieldBinding(Field field, Parsable parsable, ManyCols manyCols, ManyRows manyRows) {
+			this.field = field;
+			this.accessor = FieldAccessor.of(field);
+			this.row = parsable.row();
+			this.col = parsable.col();
+			this.colSize = manyCols == null ? 1 : manyCols.value();
+			this.rowSize = manyRows == null ? 1 : manyRows.value();
+			this.parser = BindingPlan.getParser(parsable.parser());
+			this.primitiveArray = (manyCols != null || manyRows != null) && PrimitiveArrays.isSupported(field.getType());
+			this.dictionary = (manyCols != null || manyRows != null) && !primitiveArray
+					&& field.isAnnotationPresent(Dictionary.class);
+			Class<?> primitiveType = primitiveArray ? PrimitiveArrays.getElementType(field.getType()) : field.getType();
+			this.primitiveParser = parser instanceof PrimitiveParser
+					&& ((PrimitiveParser<?>) parser).getPrimitiveType() == primitiveType ? (PrimitiveParser<?>) parser : null;
+			if (manyRows == null) {
+				mode = manyCols == null ? Mode.SINGLE_CELL : Mode.MANY_COLS;
+			} else {
+				mode = manyCols == null ? Mode.MANY_ROWS : Mode.MANY_COLS_AND_MANY_ROWS;
+			}
+			this.primitiveStore = mode == Mode.SINGLE_CELL && primitiveParser != null
+					? accessor.createStore(primitiveParser) : null;
+		}
+
+		Field getField() {
+			return field;
+		}
+
+		FieldAccessor getAccessor() {
+			return accessor;
+		}
+
+		Mode getMode() {
+			return mode;
+		}
+
+		int getRow() {
+			return row;
+		}
+
+		int getCol() {
+			return col;
+		}
+
+		/**
+		 * @return number of rows or {@link ManyRows#PARSE_TILL_END}
+		 */
+		int getRowSize() {
+			return rowSize;
+		}
+
+		/**
+		 * @return number of columns or {@link ManyCols#PARSE_TILL_END}
+		 */
+		int getColSize() {
+			return colSize;
+		}
+
+		Parser<?> getParser() {
+			return parser;
+		}
+
+		/**
+		 * @return parser which converts values directly to the primitive type of the field (or of elements of
+		 * an array field), {@code null} if there is none
+		 */
+		PrimitiveParser<?> getPrimitiveParser() {
+			return primitiveParser;
+		}
+
+		/**
+		 * @return store which parses a value with {@link #getPrimitiveParser()} and sets the single primitive
+		 * value of the field, {@code null} if the field is not set this way
+		 */
+		PrimitiveStore getPrimitiveStore() {
+			return primitiveStore;
+		}
+
+		boolean isPrimitiveArray() {
+			return primitiveArray;
+		}
+
+		boolean isDictionary() {
+			return dictionary;
+		}
+	}
+}
@@ -0,0 +1,157 @@
+package com.github.piotrlechowicz.raven;
+
+import org.apache.log4j.Logger;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Classifies bytes of a text file for {@link TokenIndex}: each word of 64 bytes is described by bitmasks,
+ * bit {@code i} of a mask describes byte {@code i} of the word. Token index finds boundaries of tokens and lines
+ * in the masks instead of checking bytes one by one.
+ * <p>
+ * On Java 21 and newer, if module {@code jdk.incubator.vector} is available (e.g. the application is started with
+ * {@code --add-modules jdk.incubator.vector}), bytes are classified many at a time with the Vector API. The vector
+ * scanner is packaged in the multi-release part of the jar ({@code META-INF/versions/21}), on other JDKs
+ * bytes are classified eight at a time in a long (Java 17 does not pack vector comparisons into a mask with
+ * a single instruction, so the Vector API is not faster there).
+ * </p>
+ *
+ * @author plechowicz
+ */
+abstract class ByteScanner {
+
+	private static final Logger log = Logger.getLogger(ByteScanner.class);
+
+	private static final String VECTOR_SCANNER = "com.github.piotrlechowicz.raven.VectorByteScanner";
+
+	/**
+	 * Number of bytes described by a mask
+	 */
+	static final int WORD_SIZE = 64;
+
+	static ByteScanner getInstance() {
+		return Holder.INSTANCE;
+	}
+
+	/**
+	 * Classifies words of bytes
+	 *
+	 * @param bytes  bytes to classify, length is at least {@code words * WORD_SIZE}
+	 * @param words  number of words to classify
+	 * @param spaces   whitespaces which are not line terminators: space, tab, {@code 0x0B} and form feed
+	 * @param cr       {@code \r} bytes
+	 * @param lf       {@code \n} bytes
+	 * @param controls other bytes not greater than space (unsigned), which are removed by {@link String#trim()}
+	 */
+	abstract void classify(byte[] bytes, int words, long[] spaces, long[] cr, long[] lf, long[] controls);
+
+	private static ByteScanner load() {
+		ByteScanner scalar = new ScalarByteScanner();
+		try {
+			ByteScanner vector = (ByteScanner) Class.forName(VECTOR_SCANNER).getDeclaredConstructor().newInstance();
+			if (vector.classifiesLike(scalar)) {
+				log.debug("Bytes are classified with the Vector API");
+				return vector;
+			}
+			log.warn("Vector scanner gives different results, bytes are classified one by one");
+		} catch (ClassNotFoundException e) {
+			// vector scanner exists only in the multi-release part of the jar
+		} catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+			log.debug("Vector API is not available, bytes are classified one by one: " + e);
+		}
+		return scalar;
+	}
+
+	/**
+	 * Checks scanner against the reference one on all byte values, the check also loads all classes the scanner uses
+	 */
+	private boolean classifiesLike(ByteScanner reference) {
+		int words = 16;
+		byte[] bytes = new byte[words * WORD_SIZE];
+		for (int i = 0; i < 256; i++) {
+			bytes[i] = (byte) i;
+		}
+		Random random = new Random(0);
+		for (int i = 256; i < bytes.length; i++) {
+			bytes[i] = (byte) (random.nextBoolean() ? random.nextInt(34) : random.nextInt());
+		}
+		long[][] masks = new long[8][words];
+		classify(bytes, words, masks[0], masks[1], masks[2], masks[3]);
+		reference.classify(bytes, words, masks[4], masks[5], masks[6], masks[7]);
+		for (int i = 0; i < 4; i++) {
+			if (!Arrays.equals(masks[i], masks[i + 4])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Scanner is chosen when it is first used, not while ByteScanner is initialized: initialization of a subclass
+	 * initializes ByteScanner first, so the check of scanners would run before static fields of the subclass are set
+	 */
+	private static final class Holder {
+		private static final ByteScanner INSTANCE = load();
+	}
+
+	/**
+	 * Classifies eight bytes at a time, bytes are compared in a long with bitwise operations
+	 */
+	static final class ScalarByteScanner extends ByteScanner {
+
+		private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+		private static final long ONES = 0x0101010101010101L;
+		private static final long HIGH_BITS = 0x8080808080808080L;
+		private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+
+		@Override
+		void classify(byte[] bytes, int words, long[] spaces, long[] cr, long[] lf, long[] controls) {
+			for (int word = 0; word < words; word++) {
+				long spaceMask = 0;
+				long crMask = 0;
+				long lfMask = 0;
+				long controlMask = 0;
+				int offset = word * WORD_SIZE;
+				for (int i = 0; i < WORD_SIZE; i += Long.BYTES) {
+					long v = (long) LONGS.get(bytes, offset + i);
+					// high bit of bytes not greater than space, (b & 0x7F) + 0x5F overflows into the high bit for b > 0x20
+					long low = ~((v & LOW_BITS) + 0x5F * ONES | v) & HIGH_BITS;
+					if (low == 0) {
+						continue;
+					}
+					long space = equal(v, ' ') | equal(v, '\t') | equal(v, 0x0B) | equal(v, '\f');
+					long crBytes = equal(v, '\r');
+					long lfBytes = equal(v, '\n');
+					spaceMask |= pack(space) << i;
+					crMask |= pack(crBytes) << i;
+					lfMask |= pack(lfBytes) << i;
+					controlMask |= pack(low & ~(space | crBytes | lfBytes)) << i;
+				}
+				spaces[word] = spaceMask;
+				cr[word] = crMask;
+				lf[word] = lfMask;
+				controls[word] = controlMask;
+			}
+		}
+
+		/**
+		 * @return high bit of bytes equal to b
+		 */
+		private static long equal(long v, int b) {
+			long x = v ^ b * ONES;
+			return ~((x & LOW_BITS) + LOW_BITS | x) & HIGH_BITS;
+		}
+
+		/**
+		 * @return high bits of bytes packed into the lowest byte, high bit of byte i into bit i
+		 */
+		private static long pack(long highBits) {
+			return highBits * 0x0002040810204081L >>> 56;
+		}
+	}
+}
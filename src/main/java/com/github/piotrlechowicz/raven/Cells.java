@@ -0,0 +1,54 @@
+package com.github.piotrlechowicz.raven;
+
+import com.github.piotrlechowicz.raven.annotations.ManyCols;
+import com.github.piotrlechowicz.raven.annotations.ManyRows;
+
+import java.util.List;
+
+/**
+ * Values of a text file seen as a two dimensional grid of Strings.
+ * <p>
+ * Methods follow annotations of a field: {@link #getValueAt(int, int)} is used for a single value,
+ * {@link #getManyCols(int, int, int)} for field annotated with {@link ManyCols},
+ * {@link #getManyRows(int, int, int)} for field annotated with {@link ManyRows} and
+ * {@link #getManyColsAndManyRows(int, int, int, int)} for field annotated with both.
+ * Size equal to {@code PARSE_TILL_END} means that values are taken till the last column/row.
+ * If requested values are out of a grid, {@code null} is returned.
+ * </p>
+ *
+ * @author plechowicz
+ */
+public interface Cells {
+
+	/**
+	 * @param row index of row
+	 * @param col index of column
+	 * @return value in a cell
+	 */
+	String getValueAt(int row, int col);
+
+	/**
+	 * @param row     index of row
+	 * @param col     index of starting column
+	 * @param colSize number of columns or {@link ManyCols#PARSE_TILL_END}
+	 * @return values in a row
+	 */
+	List<String> getManyCols(int row, int col, int colSize);
+
+	/**
+	 * @param row     index of starting row
+	 * @param col     index of column
+	 * @param rowSize number of rows or {@link ManyRows#PARSE_TILL_END}
+	 * @return values in a column
+	 */
+	List<String> getManyRows(int row, int col, int rowSize);
+
+	/**
+	 * @param row     index of starting row
+	 * @param col     index of starting column
+	 * @param rowSize number of rows or {@link ManyRows#PARSE_TILL_END}
+	 * @param colSize number of columns or {@link ManyCols#PARSE_TILL_END}
+	 * @return list of rows
+	 */
+	List<List<String>> getManyColsAndManyRows(int row, int col, int rowSize, int colSize);
+}
@@ -0,0 +1,251 @@
+package com.github.piotrlechowicz.raven;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Output of savers - characters are encoded into a direct buffer, which is written to a file channel
+ * whenever it is full. Characters are encoded the same way as by {@link java.io.FileWriter}: in the default
+ * charset, with malformed and unmappable characters replaced.
+ * <p>
+ * When the charset encodes ASCII characters as single bytes of the same value (UTF-8, ISO-8859-1 and most other
+ * default charsets), ASCII characters are copied as bytes and only other characters are passed to the encoder.
+ * Direct buffers are pooled, so opening an output for every saved row does not allocate them again. Output
+ * of a few characters, e.g. a single line, is encoded into a heap buffer of their size instead.
+ * </p>
+ * <p>
+ * Each written sequence is encoded as a whole, so it must not end with a half of a surrogate pair
+ * (savers write whole lines). Not thread safe.
+ * </p>
+ *
+ * @author plechowicz
+ */
+final class ChannelOutput implements Closeable {
+
+	/**
+	 * Size of direct buffers, which is the size of writes to the channel
+	 */
+	static final int BUFFER_SIZE = 256 << 10;
+
+	/**
+	 * Size of the array in which characters are converted into bytes before they are copied to a buffer
+	 */
+	private static final int SCRATCH_SIZE = 8 << 10;
+
+	private static final BlockingQueue<ByteBuffer> BUFFER_POOL =
+			new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors());
+
+	private static final String ASCII = createAscii();
+
+	private final FileChannel channel;
+	private final CharsetEncoder encoder;
+	private final boolean asciiCompatible;
+	private final byte[] scratch;
+	private final ByteBuffer encoded;
+
+	private ByteBuffer buffer;
+	private boolean closed;
+
+	ChannelOutput(FileChannel channel, Charset charset) {
+		this(channel, charset, -1);
+	}
+
+	/**
+	 * @param length number of characters which will be written, negative if unknown
+	 */
+	ChannelOutput(FileChannel channel, Charset charset, int length) {
+		this.channel = channel;
+		this.encoder = charset.newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		this.asciiCompatible = Arrays.equals(ASCII.getBytes(charset), ASCII.getBytes(StandardCharsets.US_ASCII));
+		// at least room for a surrogate pair, which is encoded at once
+		long maxBytes = Math.max(2L, length) * (long) Math.ceil(encoder.maxBytesPerChar());
+		if (length >= 0 && maxBytes < BUFFER_SIZE) {
+			this.scratch = new byte[(int) Math.min(maxBytes, SCRATCH_SIZE)];
+			this.buffer = ByteBuffer.allocate((int) maxBytes);
+		} else {
+			this.scratch = new byte[SCRATCH_SIZE];
+			this.buffer = acquireBuffer();
+		}
+		this.encoded = ByteBuffer.wrap(scratch);
+	}
+
+	/**
+	 * Opens file for appending, creates it if it does not exist
+	 *
+	 * @param path path of file
+	 * @return output in the default charset
+	 * @throws java.io.IOException if file cannot be opened
+	 */
+	static ChannelOutput append(Path path) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.APPEND);
+		return new ChannelOutput(channel, Charset.defaultCharset());
+	}
+
+	/**
+	 * Opens file for appending, creates it if it does not exist. Output of less than {@link #BUFFER_SIZE} bytes
+	 * is encoded into a heap buffer, which is not taken from the pool
+	 *
+	 * @param path   path of file
+	 * @param length number of characters which will be written
+	 * @return output in the default charset
+	 * @throws java.io.IOException if file cannot be opened
+	 */
+	static ChannelOutput append(Path path, int length) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.APPEND);
+		return new ChannelOutput(channel, Charset.defaultCharset(), length);
+	}
+
+	/**
+	 * Encodes characters, full buffer is written to the channel
+	 *
+	 * @param chars characters to write
+	 * @throws java.io.IOException if any.
+	 */
+	void write(CharSequence chars) throws IOException {
+		int length = chars.length();
+		int i = 0;
+		while (i < length) {
+			if (asciiCompatible) {
+				i = writeAscii(chars, i, length);
+				int end = i;
+				while (end < length && chars.charAt(end) >= 0x80) {
+					end++;
+				}
+				encode(chars, i, end);
+				i = end;
+			} else {
+				encode(chars, 0, length);
+				i = length;
+			}
+		}
+	}
+
+	/**
+	 * Writes encoded characters to the channel
+	 *
+	 * @throws java.io.IOException if any.
+	 */
+	void flush() throws IOException {
+		writeBuffer();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			writeBuffer();
+		} finally {
+			releaseBuffer(buffer);
+			buffer = null;
+			channel.close();
+		}
+	}
+
+	/**
+	 * Copies ASCII characters as bytes
+	 *
+	 * @return index of the first character which is not ASCII, or end
+	 */
+	private int writeAscii(CharSequence chars, int start, int end) throws IOException {
+		int i = start;
+		while (i < end) {
+			int count = Math.min(end - i, scratch.length);
+			int ascii = 0;
+			while (ascii < count) {
+				char c = chars.charAt(i + ascii);
+				if (c >= 0x80) {
+					break;
+				}
+				scratch[ascii++] = (byte) c;
+			}
+			put(scratch, ascii);
+			i += ascii;
+			if (ascii < count) {
+				break;
+			}
+		}
+		return i;
+	}
+
+	private void encode(CharSequence chars, int start, int end) throws IOException {
+		if (start == end) {
+			return;
+		}
+		CharBuffer input = CharBuffer.wrap(chars, start, end);
+		encoder.reset();
+		while (encoder.encode(input, encoded, true).isOverflow()) {
+			putEncoded();
+		}
+		while (encoder.flush(encoded).isOverflow()) {
+			putEncoded();
+		}
+		putEncoded();
+	}
+
+	private void putEncoded() throws IOException {
+		put(scratch, encoded.position());
+		encoded.clear();
+	}
+
+	/**
+	 * Copies bytes into the buffer, full buffer is written to the channel
+	 */
+	private void put(byte[] bytes, int length) throws IOException {
+		int offset = 0;
+		while (offset < length) {
+			if (!buffer.hasRemaining()) {
+				writeBuffer();
+			}
+			int count = Math.min(length - offset, buffer.remaining());
+			buffer.put(bytes, offset, count);
+			offset += count;
+		}
+	}
+
+	private void writeBuffer() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	private static ByteBuffer acquireBuffer() {
+		ByteBuffer buffer = BUFFER_POOL.poll();
+		return buffer != null ? buffer : ByteBuffer.allocateDirect(BUFFER_SIZE);
+	}
+
+	private static void releaseBuffer(ByteBuffer buffer) {
+		if (buffer.isDirect()) {
+			buffer.clear();
+			BUFFER_POOL.offer(buffer);
+		}
+	}
+
+	private static String createAscii() {
+		char[] chars = new char[0x80];
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = (char) i;
+		}
+		return new String(chars);
+	}
+}
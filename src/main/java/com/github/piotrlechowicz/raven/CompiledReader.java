@@ -0,0 +1,129 @@
+package com.github.piotrlechowicz.raven;
+
+import com.github.piotrlechowicz.raven.BindingPlan.FieldBinding;
+import com.github.piotrlechowicz.raven.FieldAccessor.PrimitiveStore;
+import com.github.piotrlechowicz.raven.annotations.ManyCols;
+import com.github.piotrlechowicz.raven.annotations.ManyRows;
+import com.github.piotrlechowicz.raven.parsers.Parser;
+import org.apache.log4j.Logger;
+
+import java.util.List;
+
+/**
+ * Binding plan compiled into binders specialized for each field, used by {@link ReaderEngine#COMPILED}.
+ * <p>
+ * Every decision which depends only on annotations (which cells are read, whether field is primitive,
+ * which parser and setter are used) is made once, when binders are created.
+ * </p>
+ *
+ * @param <T> class which is initialized
+ * @author plechowicz
+ */
+final class CompiledReader<T> {
+
+	private static final Logger log = Logger.getLogger(CompiledReader.class);
+
+	private final FieldBinding[] bindings;
+	private final Binder[] binders;
+
+	CompiledReader(BindingPlan<T> plan) {
+		List<FieldBinding> fieldBindings = plan.getFieldBindings();
+		bindings = fieldBindings.toArray(new FieldBinding[0]);
+		binders = new Binder[bindings.length];
+		for (int i = 0; i < binders.length; i++) {
+			binders[i] = compile(bindings[i]);
+		}
+	}
+
+	/**
+	 * Initializes fields of instance with values in the matrix
+	 *
+	 * @param target instance to be initialized
+	 * @param matrix content of a file
+	 */
+	void initialize(T target, Matrix matrix) {
+		for (int i = 0; i < binders.length; i++) {
+			try {
+				binders[i].bind(target, matrix);
+			} catch (IllegalArgumentException e) {
+				FieldBinding binding = bindings[i];
+				log.warn("Field=" + binding.getField().getName() + " cannot be properly set; " + ", row="
+						+ binding.getRow() + ", col=" + binding.getCol(), e);
+			}
+		}
+	}
+
+	private static Binder compile(FieldBinding binding) {
+		FieldAccessor accessor = binding.getAccessor();
+		Parser<?> parser = binding.getParser();
+		int row = binding.getRow();
+		int col = binding.getCol();
+		int rowSize = binding.getRowSize();
+		int colSize = binding.getColSize();
+		boolean colsTillEnd = colSize == ManyCols.PARSE_TILL_END;
+		boolean rowsTillEnd = rowSize == ManyRows.PARSE_TILL_END;
+
+		if (binding.isPrimitiveArray()) {
+			return (target, matrix) -> accessor.set(target, PrimitiveArrays.create(binding, matrix));
+		}
+		switch (binding.getMode()) {
+			case SINGLE_CELL:
+				if (binding.getPrimitiveStore() != null) {
+					return compilePrimitive(binding, binding.getPrimitiveStore());
+				}
+				return (target, matrix) -> accessor.set(target, parser.parse(matrix.getValueAt(row, col)));
+			case MANY_COLS:
+				if (colsTillEnd) {
+					return (target, matrix) -> accessor.set(target,
+							FlatFileReader.convertList(binding, matrix.getRow(row, col), matrix));
+				}
+				return (target, matrix) -> accessor.set(target,
+						FlatFileReader.convertList(binding, matrix.getRow(row, col, col + colSize), matrix));
+			case MANY_ROWS:
+				if (rowsTillEnd) {
+					return (target, matrix) -> accessor.set(target,
+							FlatFileReader.convertList(binding, matrix.getColumn(row, col), matrix));
+				}
+				return (target, matrix) -> accessor.set(target,
+						FlatFileReader.convertList(binding, matrix.getColumn(row, row + rowSize, col), matrix));
+			default:
+				if (rowsTillEnd && colsTillEnd) {
+					return (target, matrix) -> accessor.set(target,
+							FlatFileReader.convertMatrix(binding, matrix.getRowsAndCols(row, col), matrix));
+				} else if (rowsTillEnd) {
+					return (target, matrix) -> accessor.set(target,
+							FlatFileReader.convertMatrix(binding, matrix.getRowsAndColsInRange(row, col, col + colSize), matrix));
+				} else if (colsTillEnd) {
+					return (target, matrix) -> accessor.set(target,
+							FlatFileReader.convertMatrix(binding, matrix.getRowsInRangeAndCols(row, row + rowSize, col), matrix));
+				}
+				return (target, matrix) -> accessor.set(target, FlatFileReader.convertMatrix(binding,
+						matrix.getRowsInRangeAndColsInRange(row, row + rowSize, col, col + colSize), matrix));
+		}
+	}
+
+	/**
+	 * Compiles binder of a primitive field, which is set with the store chosen for its type. Empty values are
+	 * parsed into boxed values.
+	 */
+	private static Binder compilePrimitive(FieldBinding binding, PrimitiveStore store) {
+		FieldAccessor accessor = binding.getAccessor();
+		Parser<?> parser = binding.getParser();
+		int row = binding.getRow();
+		int col = binding.getCol();
+		return (target, matrix) -> {
+			CharSequence value = matrix.getSequenceAt(row, col);
+			if (value == null || value.length() == 0) {
+				accessor.set(target, parser.parse(matrix.getValueAt(row, col)));
+			} else {
+				store.store(target, value);
+			}
+		};
+	}
+
+	@FunctionalInterface
+	private interface Binder {
+		void bind(Object target, Matrix matrix);
+	}
+
+}
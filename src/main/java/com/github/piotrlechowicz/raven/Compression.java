@@ -0,0 +1,395 @@
+package com.github.piotrlechowicz.raven;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Decompresses text files compressed with gzip (recognized by the magic number) or zlib (recognized by
+ * {@code .zz} or {@code .zlib} extension) into memory, so they are tokenized as uncompressed files.
+ * <p>
+ * Gzip file can consist of many members (e.g. files compressed in parts and concatenated). Beginnings of members
+ * are not stored anywhere, so they are guessed by looking for gzip headers (with the same XFL and OS bytes as
+ * the first member) in compressed bytes, and all guessed members are inflated in parallel. Guesses are confirmed by
+ * checking that each member ends exactly where the next one begins and that CRC32 and size of each member are
+ * correct. A wrong guess (a header-like sequence inside of compressed data, which is found about once in 128 MB)
+ * only merges the candidates around it: the member which contains it is inflated again on its own, confirmed
+ * members are kept.
+ * </p>
+ *
+ * @author plechowicz
+ */
+final class Compression {
+
+	private static final int GZIP_MAGIC_1 = 0x1f;
+	private static final int GZIP_MAGIC_2 = 0x8b;
+	private static final int DEFLATE = 8;
+
+	private static final int XFL = 8;
+	private static final int OS = 9;
+
+	private static final int FHCRC = 2;
+	private static final int FEXTRA = 4;
+	private static final int FNAME = 8;
+	private static final int FCOMMENT = 16;
+	private static final int RESERVED_FLAGS = 0xe0;
+
+	private static final int HEADER_SIZE = 10;
+	private static final int TRAILER_SIZE = 8;
+
+	/**
+	 * Compressed files smaller than this are not split into members
+	 */
+	private static final int MIN_PARALLEL_SIZE = 1 << 20;
+
+	private static final int MAX_SIZE = Integer.MAX_VALUE - 8;
+
+	/**
+	 * Files which decompress to more bytes than this are not decompressed into memory, lowered by tests
+	 */
+	static int maxSize = MAX_SIZE;
+	private static final int CHUNK = 64 * 1024;
+
+	private Compression() {
+	}
+
+	/**
+	 * Checks if content of a file has to be decompressed
+	 *
+	 * @param path path of a file
+	 * @param data content of a file
+	 * @return true if file is compressed with gzip or zlib
+	 */
+	static boolean isCompressed(Path path, ByteBuffer data) {
+		return isGzip(data) || isZlib(path);
+	}
+
+	/**
+	 * Decompresses content of a file
+	 *
+	 * @param path     path of a file
+	 * @param data     compressed content of a file, from position 0 till limit
+	 * @param executor executor on which members of gzip file are inflated
+	 * @return decompressed content or {@code null} if it is larger than 2 GB (it can be read with
+	 * {@link #open(Path, InputStream)})
+	 * @throws IOException when content is not correctly compressed
+	 */
+	static ByteBuffer decompress(Path path, ByteBuffer data, Executor executor) throws IOException {
+		try {
+			if (isGzip(data)) {
+				ByteBuffer parallel = data.limit() >= MIN_PARALLEL_SIZE ? inflateMembersInParallel(data, executor) : null;
+				return parallel != null ? parallel : inflateGzip(data);
+			}
+			Inflater inflater = new Inflater();
+			try {
+				ByteBuffer input = data.duplicate();
+				input.position(0);
+				inflater.setInput(input);
+				Output output = new Output(Math.max(CHUNK, data.limit() * 4L));
+				inflate(inflater, output);
+				return output.toByteBuffer();
+			} finally {
+				inflater.end();
+			}
+		} catch (TooLargeException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Wraps stream of a file with decompressing stream if file is compressed
+	 *
+	 * @param path  path of a file
+	 * @param input content of a file
+	 * @return stream of decompressed content
+	 * @throws IOException when stream cannot be read
+	 */
+	static InputStream open(Path path, InputStream input) throws IOException {
+		if (isZlib(path)) {
+			return new InflaterInputStream(input, new Inflater(), CHUNK);
+		}
+		InputStream buffered = new BufferedInputStream(input);
+		buffered.mark(2);
+		int first = buffered.read();
+		int second = buffered.read();
+		buffered.reset();
+		if (first == GZIP_MAGIC_1 && second == GZIP_MAGIC_2) {
+			return new GZIPInputStream(buffered, CHUNK);
+		}
+		return buffered;
+	}
+
+	private static boolean isGzip(ByteBuffer data) {
+		return data.limit() >= 2 && (data.get(0) & 0xff) == GZIP_MAGIC_1 && (data.get(1) & 0xff) == GZIP_MAGIC_2;
+	}
+
+	private static boolean isZlib(Path path) {
+		String name = path.getFileName() == null ? "" : path.getFileName().toString();
+		return name.endsWith(".zz") || name.endsWith(".zlib");
+	}
+
+	/**
+	 * Inflates members one after another, bytes after the last member which do not start a new member are ignored
+	 */
+	private static ByteBuffer inflateGzip(ByteBuffer data) throws IOException {
+		Output output = new Output(Math.max(CHUNK, data.limit() * 4L));
+		Inflater inflater = new Inflater(true);
+		try {
+			int position = 0;
+			while (position == 0 || (data.limit() - position >= HEADER_SIZE && isHeader(data, position))) {
+				int start = output.size;
+				int end = inflateMember(data, position, data.limit(), inflater, output);
+				checkTrailer(data, end, output.bytes, start, output.size - start);
+				position = end + TRAILER_SIZE;
+				inflater.reset();
+			}
+		} finally {
+			inflater.end();
+		}
+		return output.toByteBuffer();
+	}
+
+	/**
+	 * Inflates candidate members in parallel, then walks the members from the beginning of the file. Member which
+	 * was not confirmed (its candidate is wrong or the next candidate is inside of it) is inflated again till its
+	 * real end, the walk continues with the candidate at its end. Bytes after the last member which do not start
+	 * a new member are ignored, as by {@link #inflateGzip(ByteBuffer)}.
+	 *
+	 * @return decompressed content or {@code null} if there is only one candidate
+	 */
+	private static ByteBuffer inflateMembersInParallel(ByteBuffer data, Executor executor) throws IOException {
+		List<Integer> starts = findMemberCandidates(data);
+		if (starts.size() < 2) {
+			return null;
+		}
+		starts.add(data.limit());
+		List<int[]> candidates = new ArrayList<>();
+		for (int i = 0; i + 1 < starts.size(); i++) {
+			candidates.add(new int[]{starts.get(i), starts.get(i + 1)});
+		}
+		List<byte[]> parts = ParallelBatch.map(candidates, member -> inflateCandidate(data, member[0], member[1]), executor);
+
+		List<byte[]> members = new ArrayList<>();
+		long size = 0;
+		int candidate = 0;
+		int position = 0;
+		while (position == 0 || (data.limit() - position >= HEADER_SIZE && isHeader(data, position))) {
+			while (candidate < parts.size() && starts.get(candidate) < position) {
+				candidate++;
+			}
+			byte[] member;
+			if (candidate < parts.size() && starts.get(candidate) == position && parts.get(candidate) != null) {
+				member = parts.get(candidate);
+				position = starts.get(candidate + 1);
+			} else {
+				Output output = new Output(CHUNK);
+				Inflater inflater = new Inflater(true);
+				try {
+					int end = inflateMember(data, position, data.limit(), inflater, output);
+					checkTrailer(data, end, output.bytes, 0, output.size);
+					position = end + TRAILER_SIZE;
+				} finally {
+					inflater.end();
+				}
+				member = output.toArray();
+			}
+			size += member.length;
+			if (size > maxSize) {
+				throw new TooLargeException();
+			}
+			members.add(member);
+		}
+		byte[] bytes = new byte[(int) size];
+		int offset = 0;
+		for (byte[] member : members) {
+			System.arraycopy(member, 0, bytes, offset, member.length);
+			offset += member.length;
+		}
+		return ByteBuffer.wrap(bytes);
+	}
+
+	/**
+	 * Finds headers which look like the header of the first member (members are usually written by the same
+	 * compressor)
+	 */
+	private static List<Integer> findMemberCandidates(ByteBuffer data) {
+		List<Integer> starts = new ArrayList<>();
+		starts.add(0);
+		if (data.limit() < HEADER_SIZE) {
+			return starts;
+		}
+		byte xfl = data.get(XFL);
+		byte os = data.get(OS);
+		for (int i = 1, last = data.limit() - HEADER_SIZE; i <= last; i++) {
+			if ((data.get(i) & 0xff) == GZIP_MAGIC_1 && isHeader(data, i) && data.get(i + XFL) == xfl && data.get(i + OS) == os) {
+				starts.add(i);
+			}
+		}
+		return starts;
+	}
+
+	/**
+	 * Inflates a single member which should occupy bytes from start till end
+	 *
+	 * @return decompressed member or {@code null} if bytes are not exactly one correct member
+	 */
+	private static byte[] inflateCandidate(ByteBuffer data, int start, int end) {
+		if (end - start < HEADER_SIZE + TRAILER_SIZE) {
+			return null;
+		}
+		// size in the trailer of a false candidate is random, so it is trusted only up to a few times
+		// the compressed size and the output grows if the member is larger
+		long expectedSize = Integer.toUnsignedLong(data.duplicate().order(ByteOrder.LITTLE_ENDIAN).getInt(end - 4));
+		Output output = new Output(Math.max(1, Math.min(expectedSize, Math.max(CHUNK, (end - start) * 4L))));
+		Inflater inflater = new Inflater(true);
+		try {
+			int memberEnd = inflateMember(data, start, end, inflater, output);
+			if (memberEnd + TRAILER_SIZE != end) {
+				return null;
+			}
+			checkTrailer(data, memberEnd, output.bytes, 0, output.size);
+			return output.toArray();
+		} catch (IOException | RuntimeException e) {
+			// too large member is inflated again while members are walked, and fails there
+			return null;
+		} finally {
+			inflater.end();
+		}
+	}
+
+	/**
+	 * Inflates member which starts at position, input is limited to the limit
+	 *
+	 * @return position after the compressed data of the member (beginning of its trailer)
+	 */
+	private static int inflateMember(ByteBuffer data, int position, int limit, Inflater inflater, Output output) throws IOException {
+		int dataStart = skipHeader(data, position, limit);
+		ByteBuffer input = data.duplicate();
+		input.limit(limit).position(dataStart);
+		inflater.setInput(input);
+		inflate(inflater, output);
+		int end = limit - inflater.getRemaining();
+		if (limit - end < TRAILER_SIZE) {
+			throw new IOException("Unexpected end of gzip member");
+		}
+		return end;
+	}
+
+	private static void inflate(Inflater inflater, Output output) throws IOException {
+		try {
+			while (!inflater.finished()) {
+				output.ensureRemaining();
+				int inflated = inflater.inflate(output.bytes, output.size, output.bytes.length - output.size);
+				output.size += inflated;
+				if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					throw new IOException("Unexpected end of compressed data");
+				}
+			}
+		} catch (DataFormatException e) {
+			throw new IOException("Invalid compressed data", e);
+		}
+	}
+
+	private static int skipHeader(ByteBuffer data, int position, int limit) throws IOException {
+		if (limit - position < HEADER_SIZE || !isHeader(data, position)) {
+			throw new IOException("Invalid gzip header");
+		}
+		int flags = data.get(position + 3) & 0xff;
+		int i = position + HEADER_SIZE;
+		if ((flags & FEXTRA) != 0) {
+			checkAvailable(i + 2, limit);
+			i += 2 + ((data.get(i) & 0xff) | (data.get(i + 1) & 0xff) << 8);
+		}
+		if ((flags & FNAME) != 0) {
+			i = skipZeroTerminated(data, i, limit);
+		}
+		if ((flags & FCOMMENT) != 0) {
+			i = skipZeroTerminated(data, i, limit);
+		}
+		if ((flags & FHCRC) != 0) {
+			i += 2;
+		}
+		checkAvailable(i, limit);
+		return i;
+	}
+
+	private static boolean isHeader(ByteBuffer data, int position) {
+		return (data.get(position) & 0xff) == GZIP_MAGIC_1 && (data.get(position + 1) & 0xff) == GZIP_MAGIC_2
+				&& data.get(position + 2) == DEFLATE && (data.get(position + 3) & RESERVED_FLAGS) == 0;
+	}
+
+	private static int skipZeroTerminated(ByteBuffer data, int position, int limit) throws IOException {
+		while (position < limit && data.get(position) != 0) {
+			position++;
+		}
+		checkAvailable(position + 1, limit);
+		return position + 1;
+	}
+
+	private static void checkAvailable(int position, int limit) throws IOException {
+		if (position > limit) {
+			throw new IOException("Unexpected end of gzip header");
+		}
+	}
+
+	private static void checkTrailer(ByteBuffer data, int position, byte[] bytes, int offset, int length) throws IOException {
+		ByteBuffer trailer = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		CRC32 crc = new CRC32();
+		crc.update(bytes, offset, length);
+		if ((trailer.getInt(position) & 0xffffffffL) != crc.getValue() || trailer.getInt(position + 4) != length) {
+			throw new IOException("Corrupt gzip member");
+		}
+	}
+
+	/**
+	 * Growable array of decompressed bytes
+	 */
+	private static final class Output {
+
+		private byte[] bytes;
+		private int size;
+
+		private final int maxSize = Compression.maxSize;
+
+		private Output(long capacity) {
+			this.bytes = new byte[(int) Math.min(capacity, maxSize)];
+		}
+
+		private void ensureRemaining() throws IOException {
+			if (size < bytes.length) {
+				return;
+			}
+			if (bytes.length >= maxSize) {
+				throw new TooLargeException();
+			}
+			bytes = Arrays.copyOf(bytes, (int) Math.min(bytes.length * 2L, maxSize));
+		}
+
+		private byte[] toArray() {
+			return size == bytes.length ? bytes : Arrays.copyOf(bytes, size);
+		}
+
+		private ByteBuffer toByteBuffer() {
+			return ByteBuffer.wrap(bytes, 0, size).slice();
+		}
+	}
+
+	private static final class TooLargeException extends IOException {
+
+		private TooLargeException() {
+			super("Decompressed file is larger than 2 GB");
+		}
+	}
+}
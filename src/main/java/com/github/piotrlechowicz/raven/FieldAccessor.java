@@ -0,0 +1,200 @@
+package com.github.piotrlechowicz.raven;
+
+import com.github.piotrlechowicz.raven.parsers.PrimitiveParser;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+/**
+ * Sets value of a field through {@link MethodHandle} bound once per field.
+ * <p>
+ * Besides generic {@link #set(Object, Object)}, accessor of a primitive field creates a store typed with the
+ * primitive type of the field ({@link #createStore(PrimitiveParser)}), which is chosen once for a field, so values
+ * are parsed and stored without boxing and without checking the type of the field for each value.
+ * </p>
+ *
+ * @author plechowicz
+ */
+final class FieldAccessor {
+
+	private static final MethodType GENERIC_SETTER = MethodType.methodType(void.class, Object.class, Object.class);
+
+	private final Field field;
+	private final Class<?> type;
+
+	/**
+	 * (Object, Object)void
+	 */
+	private final MethodHandle setter;
+
+	/**
+	 * (Object, type of field)void, only for primitive fields
+	 */
+	private final MethodHandle primitiveSetter;
+
+	private FieldAccessor(Field field, MethodHandle setter) {
+		this.field = field;
+		this.type = field.getType();
+		this.setter = setter.asType(GENERIC_SETTER);
+		this.primitiveSetter = type.isPrimitive()
+				? setter.asType(MethodType.methodType(void.class, Object.class, type))
+				: null;
+	}
+
+	/**
+	 * Creates accessor of a field. Field has to be accessible.
+	 *
+	 * @param field field to be set
+	 * @return accessor
+	 */
+	static FieldAccessor of(Field field) {
+		try {
+			return new FieldAccessor(field, MethodHandles.lookup().unreflectSetter(field));
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException("Unable to access field: " + field, e);
+		}
+	}
+
+	Field getField() {
+		return field;
+	}
+
+	Class<?> getType() {
+		return type;
+	}
+
+	/**
+	 * Gets value of a field, primitive values are boxed
+	 *
+	 * @param target instance which field is read
+	 * @return value of a field
+	 */
+	Object get(Object target) {
+		try {
+			return field.get(target);
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException("Unable to access field: " + field, e);
+		}
+	}
+
+	/**
+	 * Sets value of a field, primitive fields are unboxed
+	 *
+	 * @param target instance which field is set
+	 * @param value  value of a field
+	 * @throws IllegalArgumentException if value cannot be assigned to the field
+	 */
+	void set(Object target, Object value) {
+		try {
+			setter.invokeExact(target, value);
+		} catch (ClassCastException e) {
+			// widening conversions (e.g. Integer to long field) are left to reflection
+			setReflectively(target, value);
+		} catch (NullPointerException e) {
+			throw new IllegalArgumentException("Cannot set field " + field + " to null", e);
+		} catch (Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	/**
+	 * Creates store of a primitive field, which converts values with the specialized method of a parser for the
+	 * type of the field (e.g. {@link PrimitiveParser#parseInt(CharSequence, int, int)} for {@code int} field) and
+	 * sets the field without boxing. Type of the field is checked once, when the store is created.
+	 *
+	 * @param parser parser which primitive type is the type of the field
+	 * @return store or {@code null} if parser has no specialized method for the type of the field
+	 */
+	PrimitiveStore createStore(PrimitiveParser<?> parser) {
+		MethodHandle setter = primitiveSetter;
+		if (type == int.class) {
+			return (target, input) -> {
+				int value = parser.parseInt(input, 0, input.length());
+				try {
+					setter.invokeExact(target, value);
+				} catch (Throwable e) {
+					throw rethrow(e);
+				}
+			};
+		} else if (type == double.class) {
+			return (target, input) -> {
+				double value = parser.parseDouble(input, 0, input.length());
+				try {
+					setter.invokeExact(target, value);
+				} catch (Throwable e) {
+					throw rethrow(e);
+				}
+			};
+		} else if (type == long.class) {
+			return (target, input) -> {
+				long value = parser.parseLong(input, 0, input.length());
+				try {
+					setter.invokeExact(target, value);
+				} catch (Throwable e) {
+					throw rethrow(e);
+				}
+			};
+		} else if (type == float.class) {
+			return (target, input) -> {
+				float value = parser.parseFloat(input, 0, input.length());
+				try {
+					setter.invokeExact(target, value);
+				} catch (Throwable e) {
+					throw rethrow(e);
+				}
+			};
+		} else if (type == byte.class) {
+			return (target, input) -> {
+				byte value = parser.parseByte(input, 0, input.length());
+				try {
+					setter.invokeExact(target, value);
+				} catch (Throwable e) {
+					throw rethrow(e);
+				}
+			};
+		} else if (type == boolean.class) {
+			return (target, input) -> {
+				boolean value = parser.parseBoolean(input, 0, input.length());
+				try {
+					setter.invokeExact(target, value);
+				} catch (Throwable e) {
+					throw rethrow(e);
+				}
+			};
+		}
+		return null;
+	}
+
+	private void setReflectively(Object target, Object value) {
+		try {
+			field.set(target, value);
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException("Unable to access field: " + field, e);
+		}
+	}
+
+	/**
+	 * Converts characters of a value and sets a primitive field, see {@link #createStore(PrimitiveParser)}
+	 */
+	@FunctionalInterface
+	interface PrimitiveStore {
+
+		/**
+		 * @param target instance which field is set
+		 * @param input  characters of a value
+		 */
+		void store(Object target, CharSequence input);
+	}
+
+	private static RuntimeException rethrow(Throwable e) {
+		if (e instanceof RuntimeException) {
+			return (RuntimeException) e;
+		}
+		if (e instanceof Error) {
+			throw (Error) e;
+		}
+		return new IllegalStateException(e);
+	}
+}
@@ -1,19 +1,38 @@
 package com.github.piotrlechowicz.raven;
 
+import com.github.piotrlechowicz.raven.BindingPlan.FieldBinding;
+import com.github.piotrlechowicz.raven.FieldAccessor.PrimitiveStore;
 import com.github.piotrlechowicz.raven.annotations.ManyCols;
 import com.github.piotrlechowicz.raven.annotations.ManyRows;
-import com.github.piotrlechowicz.raven.annotations.Parsable;
-import com.github.piotrlechowicz.raven.parsers.DummyParser;
 import com.github.piotrlechowicz.raven.parsers.Parser;
-import org.apache.commons.io.FileUtils;
 import org.apache.log4j.Logger;
 
-import java.io.File;
+import java.io.BufferedReader;
+import java.io.FileInputStream;
 import java.io.IOException;
-import java.lang.reflect.Field;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Creates class instance and initializes fields based on provided text file and annotations.<br>
@@ -48,6 +67,15 @@ import java.util.List;
  * <p>
  * To parse a list of values instead of a single value, use annotations {@link com.github.piotrlechowicz.raven.annotations.ManyCols} and/or {@link com.github.piotrlechowicz.raven.annotations.ManyRows}
  * </p>
+ * <p>
+ * Reader does not keep any state of a parsed file, so one reader can be used by many threads at the same time.
+ * Many files can be parsed in parallel with {@link #createAll(Collection)}, and a file of many records
+ * can be parsed lazily, record by record, with {@link #stream(String, int)}.
+ * </p>
+ * <p>
+ * If a reader of the class was generated by the Raven annotation processor ({@link GeneratedReader}),
+ * it is used instead of reflection.
+ * </p>
  *
  * @param <T> Class which will be created/initialized with the parser
  * @author Piotr Lechowicz
@@ -57,11 +85,22 @@ public class FlatFileReader<T> {
 
 	private static final Logger log = Logger.getLogger(FlatFileReader.class);
 
+	/**
+	 * Number of values of a list (or rows of a matrix) from which values of a file tokenized in parallel
+	 * are parsed in parallel, also number of values parsed by a single task
+	 */
+	private static final int PARALLEL_VALUES = 1 << 14;
+	private static final int PARALLEL_ROWS = 1 << 10;
+
 	private final Class<T> clazz;
 
-	private T t;
+	private final BindingPlan<T> plan;
 
-	private Matrix matrix;
+	private final ReaderEngine engine;
+
+	private final Executor executor;
+
+	private final SnapshotMode snapshotMode;
 
 	/**
 	 * <p>Constructor for FlatFileReader.</p>
@@ -69,7 +108,50 @@ public class FlatFileReader<T> {
 	 * @param clazz Class which instances will be created
 	 */
 	public FlatFileReader(Class<T> clazz) {
+		this(clazz, ReaderEngine.REFLECTIVE);
+	}
+
+	/**
+	 * <p>Constructor for FlatFileReader.</p>
+	 *
+	 * @param clazz  Class which instances will be created
+	 * @param engine how values are bound to the fields
+	 */
+	public FlatFileReader(Class<T> clazz, ReaderEngine engine) {
+		this(clazz, engine, ParallelBatch.defaultExecutor());
+	}
+
+	/**
+	 * <p>Constructor for FlatFileReader.</p>
+	 *
+	 * @param clazz    Class which instances will be created
+	 * @param engine   how values are bound to the fields
+	 * @param executor executor on which files are parsed by {@link #createAll(Collection)}, and tokenized and bound
+	 *                 by {@link #createAsync(Path)}
+	 */
+	public FlatFileReader(Class<T> clazz, ReaderEngine engine, Executor executor) {
+		this(clazz, engine, executor, SnapshotMode.DISABLED);
+	}
+
+	/**
+	 * <p>Constructor for FlatFileReader.</p>
+	 *
+	 * @param clazz        Class which instances will be created
+	 * @param engine       how values are bound to the fields
+	 * @param executor     executor on which files are parsed by {@link #createAll(Collection)}, and tokenized and
+	 *                     bound by {@link #createAsync(Path)}
+	 * @param snapshotMode whether positions of tokens are stored in binary snapshots next to text files
+	 */
+	public FlatFileReader(Class<T> clazz, ReaderEngine engine, Executor executor, SnapshotMode snapshotMode) {
 		this.clazz = clazz;
+		this.plan = BindingPlan.of(clazz);
+		this.engine = engine;
+		this.executor = executor;
+		this.snapshotMode = snapshotMode;
+	}
+
+	Class<T> getType() {
+		return clazz;
 	}
 
 	/**
@@ -81,10 +163,7 @@ public class FlatFileReader<T> {
 	 * @throws java.io.IOException when file does not exist
 	 */
 	public T create(String path) throws IOException {
-
-		this.t = getNewInstance(clazz);
-
-		return parseFile(path);
+		return parseFile(plan.newInstance(), path);
 	}
 
 	/**
@@ -97,118 +176,486 @@ public class FlatFileReader<T> {
 	 * @throws java.io.IOException when file does not exist
 	 */
 	public T initialize(T instance, String path) throws IOException {
-		this.t = instance;
+		return parseFile(instance, path);
+	}
+
+	/**
+	 * Creates class instance from a text file without blocking the calling thread, see
+	 * {@link #initializeAsync(Object, Path)}.
+	 *
+	 * @param path path of text file
+	 * @return future of initialized instance, completed exceptionally with {@link IOException} when file
+	 * cannot be read
+	 */
+	public CompletableFuture<T> createAsync(Path path) {
+		return readMatrixAsync(path).thenApplyAsync(matrix -> bind(plan.newInstance(), matrix), executor);
+	}
+
+	/**
+	 * Initializes class instance's fields with values in a text file without blocking the calling thread.
+	 * File is read with {@link java.nio.channels.AsynchronousFileChannel}, so no thread waits for the disk,
+	 * and then it is tokenized and bound on the executor of the reader.
+	 *
+	 * @param instance Instance which is going to be initialized
+	 * @param path     path of text file
+	 * @return future of initialized instance, completed exceptionally with {@link IOException} when file
+	 * cannot be read
+	 */
+	public CompletableFuture<T> initializeAsync(T instance, Path path) {
+		return readMatrixAsync(path).thenApplyAsync(matrix -> bind(instance, matrix), executor);
+	}
+
+	/**
+	 * Creates class instances from many text files. Files are parsed in parallel on the executor of the reader.
+	 *
+	 * @param paths paths of text files
+	 * @return results in the order of paths, failure of a file does not stop parsing of other files
+	 */
+	public List<ReadResult<T>> createAll(Collection<Path> paths) {
+		return ParallelBatch.map(new ArrayList<>(paths), path -> {
+			try {
+				return ReadResult.success(path, create(path.toString()));
+			} catch (IOException | RuntimeException e) {
+				return ReadResult.<T>failure(path, e);
+			}
+		}, executor);
+	}
 
-		return parseFile(path);
+	/**
+	 * Creates class instances from text files in a directory which names match a glob pattern
+	 * (e.g. {@code *.txt}), see {@link #createAll(Collection)}.
+	 *
+	 * @param directory directory with text files
+	 * @param glob      pattern of file names
+	 * @return results in the order of file names
+	 * @throws java.io.IOException when directory cannot be listed
+	 */
+	public List<ReadResult<T>> createAll(Path directory, String glob) throws IOException {
+		List<Path> paths = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, glob)) {
+			for (Path path : stream) {
+				if (Files.isRegularFile(path)) {
+					paths.add(path);
+				}
+			}
+		}
+		Collections.sort(paths);
+		return createAll(paths);
 	}
 
-	private T parseFile(String path) throws IOException {
-		List<String> rawFileContent = getFileContent(path);
-		this.matrix = new Matrix(createMatrixOfValues(rawFileContent));
+	/**
+	 * Creates class instance for each record of a text file, where record is the number of lines used by the fields
+	 * (the last row used by any field plus one), see {@link #stream(String, int)}.
+	 *
+	 * @param path path of text file
+	 * @return lazy stream of instances, has to be closed to close the file
+	 * @throws java.io.IOException when file does not exist
+	 * @throws IllegalArgumentException when any field is parsed till the end of a file
+	 */
+	public Stream<T> stream(String path) throws IOException {
+		if (plan.getLastRow() == BindingPlan.TILL_END) {
+			throw new IllegalArgumentException("Size of record of " + clazz + " is unknown, fields are parsed till the end of a file");
+		}
+		return stream(path, plan.getLastRow() + 1);
+	}
+
+	/**
+	 * Creates class instance for each record of a text file. Record consists of {@code linesPerRecord} consecutive
+	 * lines, and rows of annotations are relative to the first line of a record. The last record can be shorter.
+	 * <p>
+	 * Lines are read and tokenized when the next instance is requested, so memory used by the stream depends on the
+	 * size of a record, not on the size of a file.
+	 * </p>
+	 *
+	 * @param path           path of text file
+	 * @param linesPerRecord number of lines of a single record
+	 * @return lazy stream of instances, has to be closed to close the file
+	 * @throws java.io.IOException when file does not exist
+	 */
+	public Stream<T> stream(String path, int linesPerRecord) throws IOException {
+		if (linesPerRecord <= 0) {
+			throw new IllegalArgumentException("Number of lines of a record has to be positive: " + linesPerRecord);
+		}
+		BufferedReader reader;
+		try {
+			reader = openReader(path);
+		} catch (IOException e) {
+			throw unreachable(path, e);
+		}
+		Iterator<T> records = new RecordIterator(reader, linesPerRecord);
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(records, Spliterator.ORDERED | Spliterator.NONNULL), false)
+				.onClose(() -> {
+					try {
+						reader.close();
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+	}
 
-		for (Field field : clazz.getDeclaredFields()) {
-			Parsable annotation = field.getAnnotation(Parsable.class);
-			if (annotation != null) {
-				initializeField(field, annotation);
+	private T parseFile(T t, String path) throws IOException {
+		return bind(t, readMatrix(path));
+	}
+
+	private T bind(T t, Matrix matrix) {
+		if (plan.getGeneratedReader() != null) {
+			plan.getGeneratedReader().initialize(t, matrix);
+		} else if (engine == ReaderEngine.COMPILED) {
+			plan.getCompiledReader().initialize(t, matrix);
+		} else {
+			for (FieldBinding binding : plan.getFieldBindings()) {
+				initializeField(t, matrix, binding);
 			}
 		}
 		return t;
 	}
 
+	/**
+	 * Reads a file into matrix. File is read into memory (large files are memory mapped) and tokenized without
+	 * creating a String for each line, unless it is too large to be mapped (or decompressed into memory) or its
+	 * charset is not ASCII compatible.
+	 *
+	 * @param path path of text file
+	 * @return file content as matrix
+	 * @throws IOException when file does not exist
+	 */
+	Matrix readMatrix(String path) throws IOException {
+		Charset charset = Charset.defaultCharset();
+		if (TokenIndex.isSupported(charset)) {
+			ByteBuffer data;
+			try {
+				data = TokenIndex.readFile(Paths.get(path));
+			} catch (IOException | InvalidPathException e) {
+				throw unreachable(path, e);
+			}
+			if (data != null) {
+				if (Compression.isCompressed(Paths.get(path), data)) {
+					try {
+						data = Compression.decompress(Paths.get(path), data, executor);
+					} catch (IOException e) {
+						throw unreachable(path, e);
+					}
+				}
+				if (data != null) {
+					return toMatrix(index(Paths.get(path), data, charset));
+				}
+			}
+		}
+		return readLinesMatrix(path);
+	}
+
+	/**
+	 * Reads a file line by line into matrix, compressed files are decompressed while they are read
+	 */
+	private Matrix readLinesMatrix(String path) throws IOException {
+		List<String> rawFileContent = getFileContent(path, plan.getLastRow());
+		return new Matrix(createMatrixOfValues(rawFileContent));
+	}
+
+	/**
+	 * Reads a file into matrix asynchronously. Files in charsets which are not ASCII compatible and files which
+	 * are too large to be read into a buffer are read on the executor of the reader, as with
+	 * {@link #readMatrix(String)}.
+	 */
+	private CompletableFuture<Matrix> readMatrixAsync(Path path) {
+		Charset charset = Charset.defaultCharset();
+		if (!TokenIndex.isSupported(charset)) {
+			return CompletableFuture.supplyAsync(() -> {
+				try {
+					return readMatrix(path.toString());
+				} catch (IOException e) {
+					throw new CompletionException(e);
+				}
+			}, executor);
+		}
+		CompletableFuture<Matrix> matrix = new CompletableFuture<>();
+		AsyncFileRead.readAll(path).whenCompleteAsync((data, e) -> {
+			if (e != null) {
+				matrix.completeExceptionally(unreachable(path.toString(), e instanceof Exception ? (Exception) e : new IOException(e)));
+				return;
+			}
+			try {
+				if (data == null) {
+					matrix.complete(readMatrix(path.toString()));
+					return;
+				}
+				if (Compression.isCompressed(path, data)) {
+					data = Compression.decompress(path, data, executor);
+				}
+				matrix.complete(data != null ? toMatrix(index(path, data, charset)) : readLinesMatrix(path.toString()));
+			} catch (IOException ex) {
+				matrix.completeExceptionally(unreachable(path.toString(), ex));
+			} catch (RuntimeException | Error ex) {
+				matrix.completeExceptionally(ex);
+			}
+		}, executor);
+		return matrix;
+	}
+
+	/**
+	 * Values of large files are parsed in parallel, on the same executor on which they were tokenized
+	 */
+	private Matrix toMatrix(TokenIndex index) {
+		return new Matrix(index, index.getData().limit() >= TokenIndex.PARALLEL_CHUNK_SIZE ? executor : null);
+	}
+
+	/**
+	 * Indexes tokens of a file, or reads the index from a snapshot if it is enabled and valid
+	 */
+	private TokenIndex index(Path path, ByteBuffer data, Charset charset) {
+		int maxRows = toTokenIndexSize(plan.getLastRow());
+		int maxCols = toTokenIndexSize(plan.getLastCol());
+		if (snapshotMode == SnapshotMode.DISABLED) {
+			return TokenIndex.of(data, charset, maxRows, maxCols, executor);
+		}
+		long lastModified = path.toFile().lastModified();
+		TokenIndex index = TokenIndexSnapshot.read(path, data, lastModified, charset, maxRows, maxCols, snapshotMode);
+		if (index == null) {
+			index = TokenIndex.of(data, charset, maxRows, maxCols, executor);
+			TokenIndexSnapshot.write(path, index, lastModified, maxRows, maxCols, snapshotMode);
+		}
+		return index;
+	}
+
+	private static int toTokenIndexSize(int last) {
+		return last == BindingPlan.TILL_END ? TokenIndex.ALL : last + 1;
+	}
+
 	/**
 	 * Converts lines of text in a file into two dimensional array of Strings.
+	 * Columns after the last column used by the fields are skipped.
 	 *
 	 * @param rawFileContent file content as a list of strings
 	 * @return file content as matrix
 	 */
 	private List<List<String>> createMatrixOfValues(List<String> rawFileContent) {
-		List<List<String>> matrix = new ArrayList<>();
+		int maxTokens = plan.getLastCol() == BindingPlan.TILL_END ? Integer.MAX_VALUE : plan.getLastCol() + 1;
+		List<List<String>> matrix = new ArrayList<>(rawFileContent.size());
 		for (String line : rawFileContent) {
-			String trimmed = line.trim();
-			String[] split = trimmed.split("\\s+");
-			matrix.add(Arrays.asList(split));
+			matrix.add(tokenize(line, maxTokens));
 		}
 		return matrix;
 	}
 
-	private List<String> getFileContent(String path) throws IOException {
+	/**
+	 * Splits trimmed line on whitespaces, gives the same tokens as {@code line.trim().split("\\s+")}
+	 * limited to the first {@code maxTokens} tokens.
+	 */
+	static List<String> tokenize(String line, int maxTokens) {
+		int start = 0;
+		int end = line.length();
+		while (start < end && line.charAt(start) <= ' ') {
+			start++;
+		}
+		while (end > start && line.charAt(end - 1) <= ' ') {
+			end--;
+		}
+		if (start == end) {
+			return Collections.singletonList("");
+		}
+		List<String> tokens = new ArrayList<>();
+		int tokenStart = start;
+		for (int i = start; i < end && tokens.size() < maxTokens; i++) {
+			if (isWhitespace(line.charAt(i))) {
+				tokens.add(line.substring(tokenStart, i));
+				while (isWhitespace(line.charAt(i + 1))) {
+					i++;
+				}
+				tokenStart = i + 1;
+			}
+		}
+		if (tokens.size() < maxTokens) {
+			tokens.add(line.substring(tokenStart, end));
+		}
+		return tokens;
+	}
+
+	/**
+	 * @return true for characters matched by regular expression {@code \\s}
+	 */
+	private static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+	}
+
+	/**
+	 * Reads lines of a file, stops after the last row used by the fields
+	 *
+	 * @param path    path of text file
+	 * @param lastRow index of the last needed row or {@link BindingPlan#TILL_END}
+	 * @return lines of a file
+	 * @throws IOException when file does not exist
+	 */
+	private List<String> getFileContent(String path, int lastRow) throws IOException {
 		List<String> fileContent;
 		try {
-			fileContent = FileUtils.readLines(new File(path));
+			fileContent = readLines(path, lastRow == BindingPlan.TILL_END ? Integer.MAX_VALUE : lastRow + 1);
 		} catch (IOException e) {
-			log.warn("From directory: ");
-			log.warn(System.getProperty("user.dir"));
-			log.warn("File " + path + " is unreachable");
-			log.warn(e);
-			throw new IOException();
+			throw unreachable(path, e);
 		}
 		return fileContent;
 	}
 
-	private void initializeField(Field field, Parsable position) {
-		field.setAccessible(true);
+	private static IOException unreachable(String path, Exception e) {
+		log.warn("From directory: ");
+		log.warn(System.getProperty("user.dir"));
+		log.warn("File " + path + " is unreachable");
+		log.warn(e);
+		return new IOException();
+	}
 
-		ManyRows manyRows = field.getAnnotation(ManyRows.class);
-		ManyCols manyCols = field.getAnnotation(ManyCols.class);
+	/**
+	 * Opens reader of a file in the default charset, compressed files are decompressed
+	 */
+	private static BufferedReader openReader(String path) throws IOException {
+		InputStream input = new FileInputStream(path);
 		try {
-			if (manyRows == null) {
-				if (manyCols == null) {
-					setSingleCell(field, position);
-				} else {
-					setManyCols(field, position, manyCols);
-				}
-			} else {
-				if (manyCols == null) {
-					setManyRows(field, position, manyRows);
-				} else {
-					setManyColsAndManyRows(field, position, manyCols, manyRows);
-				}
+			return new BufferedReader(new InputStreamReader(Compression.open(Paths.get(path), input), Charset.defaultCharset()));
+		} catch (IOException | RuntimeException e) {
+			input.close();
+			throw e;
+		}
+	}
+
+	private static List<String> readLines(String path, int maxLines) throws IOException {
+		List<String> lines = new ArrayList<>();
+		try (BufferedReader reader = openReader(path)) {
+			String line;
+			while (lines.size() < maxLines && (line = reader.readLine()) != null) {
+				lines.add(line);
+			}
+		}
+		return lines;
+	}
+
+	/**
+	 * Reads records of a file, a record is read when the next instance is requested
+	 */
+	private final class RecordIterator implements Iterator<T> {
+
+		private final BufferedReader reader;
+		private final int linesPerRecord;
+		private final int maxTokens;
+		private String nextLine;
+
+		private RecordIterator(BufferedReader reader, int linesPerRecord) {
+			this.reader = reader;
+			this.linesPerRecord = linesPerRecord;
+			this.maxTokens = plan.getLastCol() == BindingPlan.TILL_END ? Integer.MAX_VALUE : plan.getLastCol() + 1;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (nextLine == null) {
+				nextLine = readLine();
+			}
+			return nextLine != null;
+		}
+
+		@Override
+		public T next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			List<List<String>> record = new ArrayList<>(linesPerRecord);
+			record.add(tokenize(nextLine, maxTokens));
+			nextLine = null;
+			String line;
+			while (record.size() < linesPerRecord && (line = readLine()) != null) {
+				record.add(tokenize(line, maxTokens));
+			}
+			return bind(plan.newInstance(), new Matrix(record));
+		}
+
+		private String readLine() {
+			try {
+				return reader.readLine();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
 			}
-		} catch (IllegalArgumentException | IllegalAccessException e) {
-			log.warn("Field=" + field.getName() + " cannot be properly set; " + ", row=" + position.row() + ", col="
-					+ position.col(), e);
 		}
 	}
 
-	private void setSingleCell(Field field, Parsable parsable) throws IllegalAccessException {
-		Parser<?> parser = getConverter(parsable);
-		field.set(t, convertField(parser, matrix.getValueAt(parsable.row(), parsable.col())));
+	private static void initializeField(Object t, Matrix matrix, FieldBinding binding) {
+		try {
+			switch (binding.getMode()) {
+				case SINGLE_CELL:
+					setSingleCell(t, matrix, binding);
+					break;
+				case MANY_COLS:
+					if (binding.isPrimitiveArray()) {
+						binding.getAccessor().set(t, PrimitiveArrays.create(binding, matrix));
+						break;
+					}
+					setManyCols(t, matrix, binding);
+					break;
+				case MANY_ROWS:
+					if (binding.isPrimitiveArray()) {
+						binding.getAccessor().set(t, PrimitiveArrays.create(binding, matrix));
+						break;
+					}
+					setManyRows(t, matrix, binding);
+					break;
+				default:
+					if (binding.isPrimitiveArray()) {
+						binding.getAccessor().set(t, PrimitiveArrays.create(binding, matrix));
+						break;
+					}
+					setManyColsAndManyRows(t, matrix, binding);
+			}
+		} catch (IllegalArgumentException e) {
+			log.warn("Field=" + binding.getField().getName() + " cannot be properly set; " + ", row=" + binding.getRow()
+					+ ", col=" + binding.getCol(), e);
+		}
+	}
+
+	/**
+	 * Sets field with a single value. Primitive field is set with a value converted by
+	 * {@link com.github.piotrlechowicz.raven.parsers.PrimitiveParser}, if the parser of the field is one,
+	 * so no String nor boxed value is created.
+	 */
+	private static void setSingleCell(Object target, Matrix matrix, FieldBinding binding) {
+		PrimitiveStore store = binding.getPrimitiveStore();
+		if (store != null) {
+			CharSequence value = matrix.getSequenceAt(binding.getRow(), binding.getCol());
+			if (value != null && value.length() > 0) {
+				store.store(target, value);
+				return;
+			}
+		}
+		binding.getAccessor().set(target, convertField(binding.getParser(), matrix.getValueAt(binding.getRow(), binding.getCol())));
 	}
 
-	private void setManyCols(Field field, Parsable parsable, ManyCols manyCols) throws IllegalAccessException {
-		int startRow = parsable.row();
-		int startCol = parsable.col();
-		int colSize = manyCols.value();
-		Parser<?> parser = getConverter(parsable);
+	private static void setManyCols(Object t, Matrix matrix, FieldBinding binding) {
+		int startRow = binding.getRow();
+		int startCol = binding.getCol();
+		int colSize = binding.getColSize();
 		List<String> valuesInMatrix;
 		if (colSize == ManyCols.PARSE_TILL_END) {
 			valuesInMatrix = matrix.getRow(startRow, startCol);
 		} else {
 			valuesInMatrix = matrix.getRow(startRow, startCol, startCol + colSize);
 		}
-		field.set(t, convertList(parser, valuesInMatrix));
+		binding.getAccessor().set(t, convertList(binding, valuesInMatrix, matrix));
 	}
 
-	private void setManyRows(Field field, Parsable parsable, ManyRows manyRows) throws IllegalAccessException {
-		int startRow = parsable.row();
-		int startCol = parsable.col();
-		int rowSize = manyRows.value();
-		Parser<?> parser = getConverter(parsable);
+	private static void setManyRows(Object t, Matrix matrix, FieldBinding binding) {
+		int startRow = binding.getRow();
+		int startCol = binding.getCol();
+		int rowSize = binding.getRowSize();
 		List<String> valuesInMatrix;
 		if (rowSize == ManyRows.PARSE_TILL_END) {
 			valuesInMatrix = matrix.getColumn(startRow, startCol);
 		} else {
 			valuesInMatrix = matrix.getColumn(startRow, startRow + rowSize, startCol);
 		}
-		field.set(t, convertList(parser, valuesInMatrix));
+		binding.getAccessor().set(t, convertList(binding, valuesInMatrix, matrix));
 	}
 
-	private void setManyColsAndManyRows(Field field, Parsable parsable, ManyCols manyCols, ManyRows manyRows) throws IllegalAccessException {
-		int startRow = parsable.row();
-		int startCol = parsable.col();
-		int rowSize = manyRows.value();
-		int colSize = manyCols.value();
-		Parser<?> parser = getConverter(parsable);
+	private static void setManyColsAndManyRows(Object t, Matrix matrix, FieldBinding binding) {
+		int startRow = binding.getRow();
+		int startCol = binding.getCol();
+		int rowSize = binding.getRowSize();
+		int colSize = binding.getColSize();
 		List<List<String>> valuesInMatrix;
 		if (rowSize == ManyRows.PARSE_TILL_END) {
 			if (colSize == ManyCols.PARSE_TILL_END) {
@@ -224,51 +671,80 @@ public class FlatFileReader<T> {
 						+ colSize);
 			}
 		}
-		field.set(t, convertMatrix(parser, valuesInMatrix));
+		binding.getAccessor().set(t, convertMatrix(binding, valuesInMatrix, matrix));
 	}
 
-	private Object convertField(Parser<?> parser, String value) {
+	private static Object convertField(Parser<?> parser, String value) {
 		return parser.parse(value);
 	}
 
-	private List<Object> convertList(Parser<?> parser, List<String> values) {
-		List<Object> result = new ArrayList<>();
-		for (String value : values) {
-			result.add(parser.parse(value));
+	/**
+	 * Parses values of a field, with {@link TokenDictionary} if the field is annotated with
+	 * {@link com.github.piotrlechowicz.raven.annotations.Dictionary}
+	 *
+	 * @param binding binding of field
+	 * @param values  values to parse
+	 * @param matrix  matrix which contains values
+	 * @return parsed values
+	 */
+	static List<Object> convertList(FieldBinding binding, List<String> values, Matrix matrix) {
+		if (values != null && binding.isDictionary()) {
+			return new TokenDictionary(binding.getParser(), matrix).convertList(values);
 		}
-		return result;
+		return convertList(binding.getParser(), values, matrix.getExecutor());
 	}
 
-	private List<List<Object>> convertMatrix(Parser<?> parser, List<List<String>> values) {
-		List<List<Object>> result = new ArrayList<>();
-		for (List<String> row : values) {
-			List<Object> resultRow = new ArrayList<>();
-			for (String cell : row) {
-				resultRow.add(parser.parse(cell));
-			}
-			result.add(resultRow);
+	/**
+	 * Parses rows of values of a field, with {@link TokenDictionary} if the field is annotated with
+	 * {@link com.github.piotrlechowicz.raven.annotations.Dictionary}
+	 *
+	 * @param binding binding of field
+	 * @param values  rows of values to parse
+	 * @param matrix  matrix which contains values
+	 * @return parsed rows
+	 */
+	static List<List<Object>> convertMatrix(FieldBinding binding, List<List<String>> values, Matrix matrix) {
+		if (values != null && binding.isDictionary()) {
+			return new TokenDictionary(binding.getParser(), matrix).convertMatrix(values);
 		}
-		return result;
+		return convertMatrix(binding.getParser(), values, matrix.getExecutor());
 	}
 
-	private Parser<?> getConverter(Parsable parsable) {
-		Parser<?> parser;
-		try {
-			parser = parsable.parser().newInstance();
-		} catch (InstantiationException | IllegalAccessException e) {
-			log.warn(String.format("Unable to create parser=%s. " +
-					"\nReturning DummyParser", parsable.parser()));
-			parser = new DummyParser();
+	/**
+	 * Parses values, large lists are parsed in parallel if executor is given
+	 *
+	 * @param parser   parser of values
+	 * @param values   values to parse
+	 * @param executor executor of parallel parsing or {@code null}
+	 * @return parsed values
+	 */
+	static List<Object> convertList(Parser<?> parser, List<String> values, Executor executor) {
+		if (executor != null && values.size() >= PARALLEL_VALUES) {
+			return ParallelBatch.mapIndexed(values.size(), PARALLEL_VALUES, i -> parser.parse(values.get(i)), executor);
+		}
+		List<Object> result = new ArrayList<>(values.size());
+		for (String value : values) {
+			result.add(parser.parse(value));
 		}
-		return parser;
+		return result;
 	}
 
-	private T getNewInstance(Class<T> clazz) {
-		try {
-			return clazz.newInstance();
-		} catch (InstantiationException | IllegalAccessException e) {
-			log.warn("Unable to create instance of: " + clazz);
-			throw new RuntimeException(e.getCause());
+	/**
+	 * Parses rows of values, large matrices are parsed in parallel if executor is given
+	 *
+	 * @param parser   parser of values
+	 * @param values   rows of values to parse
+	 * @param executor executor of parallel parsing or {@code null}
+	 * @return parsed rows
+	 */
+	static List<List<Object>> convertMatrix(Parser<?> parser, List<List<String>> values, Executor executor) {
+		if (executor != null && values.size() >= PARALLEL_ROWS) {
+			return ParallelBatch.mapIndexed(values.size(), PARALLEL_ROWS, i -> convertList(parser, values.get(i), null), executor);
 		}
+		List<List<Object>> result = new ArrayList<>(values.size());
+		for (List<String> row : values) {
+			result.add(convertList(parser, row, null));
+		}
+		return result;
 	}
 }
@@ -3,14 +3,24 @@ package com.github.piotrlechowicz.raven;
 import org.apache.log4j.Logger;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
 import java.util.IllegalFormatException;
 import java.util.List;
 
 /**
  * <p>FlatFileSaver class.</p>
+ * <p>
+ * Each {@code save} method opens the file, appends lines through a {@link ChannelOutput} and closes it. Many rows can be saved
+ * with a {@link Session}, which keeps the file open and writes buffered rows according to {@link FlushPolicy},
+ * or with an {@link AsyncWriter}, which writes them in the background.
+ * </p>
  *
  * @author Piotr Lechowicz
  * @version $Id: $Id
@@ -21,6 +31,10 @@ public class FlatFileSaver {
 
 	private static final String DEFAULT_DELIMITER = " ";
 
+	private static final String LINE_SEPARATOR = System.lineSeparator();
+
+	private static final int INITIAL_BUFFER_SIZE = 8 << 10;
+
 	protected File file;
 	protected String delimiter;
 
@@ -78,9 +92,7 @@ public class FlatFileSaver {
 	 * @throws java.io.IOException if any.
 	 */
 	public void save(FileRow fileRow) throws IOException {
-		try (PrintWriter writer = new PrintWriter(new FileWriter(file, true))) {
-			writer.println(formatFileRow(fileRow));
-		}
+		save(formatFileRow(fileRow));
 	}
 
 	/**
@@ -90,8 +102,10 @@ public class FlatFileSaver {
 	 * @throws java.io.IOException if any.
 	 */
 	public void save(String line) throws IOException {
-		try (PrintWriter writer = new PrintWriter(new FileWriter(file, true))) {
-			writer.println(line);
+		String value = String.valueOf(line);
+		try (ChannelOutput output = ChannelOutput.append(file.toPath(), value.length() + LINE_SEPARATOR.length())) {
+			output.write(value);
+			output.write(LINE_SEPARATOR);
 		}
 	}
 
@@ -102,16 +116,66 @@ public class FlatFileSaver {
 	 * @throws java.io.IOException if any.
 	 */
 	public void save(List<? extends FileRow> fileRows) throws IOException {
-		try (PrintWriter writer = new PrintWriter(new FileWriter(file, true))) {
-			fileRows.stream().forEach(element -> writer.println(formatFileRow(element)));
+		try (ChannelOutput output = ChannelOutput.append(file.toPath())) {
+			for (FileRow fileRow : fileRows) {
+				output.write(formatFileRow(fileRow));
+				output.write(LINE_SEPARATOR);
+			}
 		}
 	}
 
+	/**
+	 * Opens session which writes rows in blocks of {@link FlushPolicy#DEFAULT} size
+	 *
+	 * @return session, which has to be closed
+	 * @throws java.io.IOException if file cannot be opened
+	 */
+	public Session openSession() throws IOException {
+		return openSession(FlushPolicy.DEFAULT);
+	}
+
+	/**
+	 * Opens session which keeps the file open until it is closed
+	 *
+	 * @param policy policy of writing buffered rows
+	 * @return session, which has to be closed
+	 * @throws java.io.IOException if file cannot be opened
+	 */
+	public Session openSession(FlushPolicy policy) throws IOException {
+		return new Session(policy);
+	}
+
+	/**
+	 * Opens writer which saves rows in the background, see {@link AsyncWriter}
+	 *
+	 * @param capacity number of rows which can wait to be written
+	 * @param policy   what is done when there are too many waiting rows
+	 * @return writer, which has to be closed
+	 * @throws java.io.IOException if file cannot be opened
+	 */
+	public AsyncWriter<FileRow> openAsyncWriter(int capacity, BackpressurePolicy policy) throws IOException {
+		return new AsyncWriter<>(file.toPath(), capacity, policy,
+				(fileRow, builder) -> builder.append(formatFileRow(fileRow)).append(LINE_SEPARATOR));
+	}
+
+	/**
+	 * Opens writer which saves lines in the background, see {@link AsyncWriter}
+	 *
+	 * @param capacity number of lines which can wait to be written
+	 * @param policy   what is done when there are too many waiting lines
+	 * @return writer, which has to be closed
+	 * @throws java.io.IOException if file cannot be opened
+	 */
+	public AsyncWriter<String> openAsyncLineWriter(int capacity, BackpressurePolicy policy) throws IOException {
+		return new AsyncWriter<>(file.toPath(), capacity, policy,
+				(line, builder) -> builder.append(line).append(LINE_SEPARATOR));
+	}
+
 	private String formatFileRow(FileRow fileRow) throws IllegalRowFormatException {
 		StringBuilder builder = new StringBuilder(100);
 		for (int i = 0; i < fileRow.getNumberOfValues(); i++) {
 			try {
-				builder.append(String.format(fileRow.getFormatAt(i), fileRow.getValueAt(i)));
+				FormatPlan.of(fileRow.getFormatAt(i)).appendTo(builder, fileRow.getValueAt(i));
 			} catch (IllegalFormatException e) {
 				throw new IllegalRowFormatException("error in row=" + i + ", errorDescription=" + fileRow.getErrorDescriptionAt(i), e, i);
 			}
@@ -119,4 +183,136 @@ public class FlatFileSaver {
 		}
 		return builder.toString();
 	}
+
+	/**
+	 * Session of saving rows to the file of the saver. File is kept open and rows are appended into a buffer,
+	 * which is written when {@link FlushPolicy} says so, on {@link #flush()} and on {@link #close()}.
+	 * Lines are the same as written by {@code save} methods of {@link FlatFileSaver}. Not thread safe.
+	 */
+	public final class Session implements AutoCloseable {
+
+		private final FlushPolicy policy;
+		private final FileChannel channel;
+		/**
+		 * Encoder of the default charset, which replaces unmappable characters as {@link java.io.FileWriter} does
+		 */
+		private final CharsetEncoder encoder = Charset.defaultCharset().newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+		private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+		private int rows;
+		private long lastWriteMillis = System.nanoTime() / 1_000_000;
+		private boolean closed;
+
+		private Session(FlushPolicy policy) throws IOException {
+			this.policy = policy;
+			this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.APPEND);
+		}
+
+		/**
+		 * <p>save.</p>
+		 *
+		 * @param fileRow a {@link com.github.piotrlechowicz.raven.FileRow} object.
+		 * @throws java.io.IOException if any.
+		 */
+		public void save(FileRow fileRow) throws IOException {
+			append(formatFileRow(fileRow));
+		}
+
+		/**
+		 * <p>save.</p>
+		 *
+		 * @param line a {@link java.lang.String} object.
+		 * @throws java.io.IOException if any.
+		 */
+		public void save(String line) throws IOException {
+			append(line);
+		}
+
+		/**
+		 * <p>save.</p>
+		 *
+		 * @param fileRows a {@link java.util.List} object.
+		 * @throws java.io.IOException if any.
+		 */
+		public void save(List<? extends FileRow> fileRows) throws IOException {
+			for (FileRow fileRow : fileRows) {
+				append(formatFileRow(fileRow));
+			}
+		}
+
+		/**
+		 * Writes buffered rows to the file
+		 *
+		 * @throws java.io.IOException if any.
+		 */
+		public void flush() throws IOException {
+			ensureOpen();
+			write();
+		}
+
+		/**
+		 * Writes buffered rows and closes the file
+		 *
+		 * @throws java.io.IOException if any.
+		 */
+		@Override
+		public void close() throws IOException {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			try {
+				write();
+			} finally {
+				channel.close();
+			}
+		}
+
+		private void append(String line) throws IOException {
+			ensureOpen();
+			encode(String.valueOf(line));
+			encode(LINE_SEPARATOR);
+			rows++;
+			if (policy.shouldFlush(buffer.position(), rows, lastWriteMillis)) {
+				write();
+			}
+		}
+
+		private void encode(String value) {
+			CharBuffer chars = CharBuffer.wrap(value);
+			encoder.reset();
+			while (encoder.encode(chars, buffer, true).isOverflow()) {
+				grow();
+			}
+			while (encoder.flush(buffer).isOverflow()) {
+				grow();
+			}
+		}
+
+		private void grow() {
+			ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+			buffer.flip();
+			larger.put(buffer);
+			buffer = larger;
+		}
+
+		private void write() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+			rows = 0;
+			lastWriteMillis = System.nanoTime() / 1_000_000;
+		}
+
+		private void ensureOpen() throws IOException {
+			if (closed) {
+				throw new IOException("Session of " + file + " is closed");
+			}
+		}
+	}
 }
@@ -0,0 +1,71 @@
+package com.github.piotrlechowicz.raven;
+
+/**
+ * Defines when rows saved in a {@link FlatFileSaver.Session} are written to the file.
+ * <p>
+ * Buffered rows are written when any of enabled limits is reached: number of buffered bytes, number of buffered
+ * rows, or time since the last write. Limits are checked when a row is saved, there is no background thread,
+ * so rows saved before a pause are written on the next save, {@link FlatFileSaver.Session#flush()}
+ * or {@link FlatFileSaver.Session#close()}.
+ * </p>
+ *
+ * @author plechowicz
+ */
+public final class FlushPolicy {
+
+	/**
+	 * Denotes that a limit is not used
+	 */
+	public static final int DISABLED = -1;
+
+	/**
+	 * Rows are written only on {@link FlatFileSaver.Session#flush()} and {@link FlatFileSaver.Session#close()}
+	 */
+	public static final FlushPolicy EXPLICIT = new FlushPolicy(DISABLED, DISABLED, DISABLED);
+
+	/**
+	 * Rows are written in blocks of 64 KiB
+	 */
+	public static final FlushPolicy DEFAULT = new FlushPolicy(64 << 10, DISABLED, DISABLED);
+
+	private final long maxBytes;
+	private final int maxRows;
+	private final long maxIntervalMillis;
+
+	/**
+	 * <p>Constructor for FlushPolicy.</p>
+	 *
+	 * @param maxBytes          number of buffered bytes which are written or {@link #DISABLED}
+	 * @param maxRows           number of buffered rows which are written or {@link #DISABLED}
+	 * @param maxIntervalMillis time since the last write after which buffered rows are written or {@link #DISABLED}
+	 */
+	public FlushPolicy(long maxBytes, int maxRows, long maxIntervalMillis) {
+		this.maxBytes = maxBytes;
+		this.maxRows = maxRows;
+		this.maxIntervalMillis = maxIntervalMillis;
+	}
+
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	public int getMaxRows() {
+		return maxRows;
+	}
+
+	public long getMaxIntervalMillis() {
+		return maxIntervalMillis;
+	}
+
+	/**
+	 * @param bytes           number of buffered bytes
+	 * @param rows            number of buffered rows
+	 * @param lastWriteMillis time of the last write in milliseconds of {@link System#nanoTime()}
+	 * @return {@code true} if buffered rows should be written
+	 */
+	boolean shouldFlush(long bytes, int rows, long lastWriteMillis) {
+		return maxBytes != DISABLED && bytes >= maxBytes
+				|| maxRows != DISABLED && rows >= maxRows
+				|| maxIntervalMillis != DISABLED && System.nanoTime() / 1_000_000 - lastWriteMillis >= maxIntervalMillis;
+	}
+}
@@ -0,0 +1,452 @@
+package com.github.piotrlechowicz.raven;
+
+import java.text.DecimalFormatSymbols;
+import java.util.Formattable;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Format string compiled once, which formats a single value the same way as {@link String#format(String, Object...)}
+ * does in the default locale.
+ * <p>
+ * Format consisting of text (with {@code %%} and {@code %n}) and at most one of {@code %s}, {@code %Ns},
+ * {@code %-Ns}, {@code %d}, {@code %x}, {@code %f} or {@code %.Nf} is appended directly to the output, without
+ * parsing the format and creating a {@link java.util.Formatter}. {@code %d} and {@code %x} are appended that way
+ * for {@code Byte}, {@code Short}, {@code Integer} and {@code Long}, {@code %f} for finite {@code Float} and
+ * {@code Double} (rounded {@link java.math.RoundingMode#HALF_UP HALF_UP} like the formatter does). All other
+ * formats and values, and locales with other digits or decimal separator, are formatted with
+ * {@link String#format(String, Object...)}.
+ * </p>
+ *
+ * @author plechowicz
+ */
+public final class FormatPlan {
+
+	/**
+	 * Maximal number of plans cached by {@link #of(String)}
+	 */
+	private static final int MAX_CACHED = 1024;
+
+	private static final ConcurrentMap<String, FormatPlan> CACHE = new ConcurrentHashMap<>();
+
+	private static final String LINE_SEPARATOR = System.lineSeparator();
+
+	private enum Conversion {
+		NONE, STRING, DECIMAL, HEX, FLOAT
+	}
+
+	/**
+	 * The last checked locale, with information whether it uses ASCII digits and '.' as decimal separator
+	 */
+	private static volatile LocaleCheck localeCheck = new LocaleCheck(null, false);
+
+	private final String format;
+	/**
+	 * Whether the format is handled by {@link String#format(String, Object...)}
+	 */
+	private final boolean fallback;
+	private final String prefix;
+	private final String suffix;
+	private final Conversion conversion;
+	private final int width;
+	private final boolean leftJustified;
+	private final int precision;
+
+	private FormatPlan(String format) {
+		this.format = format;
+		Parser parser = new Parser(format);
+		this.fallback = !parser.parse();
+		this.prefix = parser.prefix.toString();
+		this.suffix = parser.suffix.toString();
+		this.conversion = parser.conversion;
+		this.width = parser.width;
+		this.leftJustified = parser.leftJustified;
+		this.precision = parser.precision;
+	}
+
+	/**
+	 * Compiles format
+	 *
+	 * @param format format of {@link String#format(String, Object...)} with one argument
+	 * @return compiled format
+	 */
+	public static FormatPlan compile(String format) {
+		return new FormatPlan(format);
+	}
+
+	/**
+	 * Gets compiled format from a cache, or compiles it
+	 *
+	 * @param format format of {@link String#format(String, Object...)} with one argument
+	 * @return compiled format
+	 */
+	static FormatPlan of(String format) {
+		FormatPlan plan = CACHE.get(format);
+		if (plan == null) {
+			plan = compile(format);
+			if (CACHE.size() < MAX_CACHED) {
+				CACHE.putIfAbsent(format, plan);
+			}
+		}
+		return plan;
+	}
+
+	public String getFormat() {
+		return format;
+	}
+
+	/**
+	 * Appends formatted value
+	 *
+	 * @param builder output
+	 * @param value   value to format
+	 * @throws java.util.IllegalFormatException if value cannot be formatted
+	 */
+	public void appendTo(StringBuilder builder, Object value) {
+		if (fallback || !appendFast(builder, value)) {
+			builder.append(String.format(format, value));
+		}
+	}
+
+	/**
+	 * Appends formatted value, the same as {@link #appendTo(StringBuilder, Object)} with boxed value
+	 *
+	 * @param builder output
+	 * @param value   value to format
+	 * @throws java.util.IllegalFormatException if value cannot be formatted
+	 */
+	public void appendTo(StringBuilder builder, int value) {
+		if (fallback || conversion == Conversion.FLOAT || conversion == Conversion.DECIMAL && !isAsciiLocale()) {
+			appendTo(builder, (Object) value);
+			return;
+		}
+		builder.append(prefix);
+		if (conversion == Conversion.STRING) {
+			appendJustified(builder, Integer.toString(value));
+		} else if (conversion == Conversion.DECIMAL) {
+			builder.append(value);
+		} else if (conversion == Conversion.HEX) {
+			builder.append(Integer.toHexString(value));
+		}
+		builder.append(suffix);
+	}
+
+	/**
+	 * Appends formatted value, the same as {@link #appendTo(StringBuilder, Object)} with boxed value
+	 *
+	 * @param builder output
+	 * @param value   value to format
+	 * @throws java.util.IllegalFormatException if value cannot be formatted
+	 */
+	public void appendTo(StringBuilder builder, long value) {
+		if (fallback || conversion == Conversion.FLOAT || conversion == Conversion.DECIMAL && !isAsciiLocale()) {
+			appendTo(builder, (Object) value);
+			return;
+		}
+		builder.append(prefix);
+		if (conversion == Conversion.STRING) {
+			appendJustified(builder, Long.toString(value));
+		} else if (conversion == Conversion.DECIMAL) {
+			builder.append(value);
+		} else if (conversion == Conversion.HEX) {
+			builder.append(Long.toHexString(value));
+		}
+		builder.append(suffix);
+	}
+
+	/**
+	 * Appends formatted value, the same as {@link #appendTo(StringBuilder, Object)} with boxed value
+	 *
+	 * @param builder output
+	 * @param value   value to format
+	 * @throws java.util.IllegalFormatException if value cannot be formatted
+	 */
+	public void appendTo(StringBuilder builder, double value) {
+		if (fallback || conversion == Conversion.DECIMAL || conversion == Conversion.HEX
+				|| conversion == Conversion.FLOAT && (!Double.isFinite(value) || !isAsciiLocale())) {
+			appendTo(builder, (Object) value);
+			return;
+		}
+		builder.append(prefix);
+		if (conversion == Conversion.STRING) {
+			appendJustified(builder, Double.toString(value));
+		} else if (conversion == Conversion.FLOAT) {
+			appendFixed(builder, value, precision);
+		}
+		builder.append(suffix);
+	}
+
+	/**
+	 * @param value value to format
+	 * @return formatted value
+	 * @throws java.util.IllegalFormatException if value cannot be formatted
+	 */
+	public String format(Object value) {
+		StringBuilder builder = new StringBuilder(prefix.length() + suffix.length() + 16);
+		appendTo(builder, value);
+		return builder.toString();
+	}
+
+	/**
+	 * @return {@code false} if nothing was appended and value has to be formatted with {@link String#format}
+	 */
+	private boolean appendFast(StringBuilder builder, Object value) {
+		switch (conversion) {
+			case NONE:
+				builder.append(prefix);
+				break;
+			case STRING:
+				// toString can return null, String.format prints it as "null" only when it is not justified
+				String string = value instanceof Formattable ? null : String.valueOf(value);
+				if (string == null) {
+					return false;
+				}
+				builder.append(prefix);
+				appendJustified(builder, string);
+				break;
+			case DECIMAL:
+				if (value != null && !isIntegral(value) || !isAsciiLocale()) {
+					return false;
+				}
+				builder.append(prefix);
+				if (value == null) {
+					builder.append("null");
+				} else {
+					builder.append(((Number) value).longValue());
+				}
+				break;
+			case HEX:
+				if (value != null && !isIntegral(value)) {
+					return false;
+				}
+				builder.append(prefix).append(toHexString(value));
+				break;
+			default:
+				if (!isFiniteFloatingPoint(value) || !isAsciiLocale()) {
+					return false;
+				}
+				builder.append(prefix);
+				appendFixed(builder, ((Number) value).doubleValue(), precision);
+		}
+		builder.append(suffix);
+		return true;
+	}
+
+	private void appendJustified(StringBuilder builder, String value) {
+		int padding = width - value.length();
+		if (leftJustified) {
+			builder.append(value);
+		}
+		for (int i = 0; i < padding; i++) {
+			builder.append(' ');
+		}
+		if (!leftJustified) {
+			builder.append(value);
+		}
+	}
+
+	private static boolean isIntegral(Object value) {
+		return value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+	}
+
+	private static boolean isFiniteFloatingPoint(Object value) {
+		return (value instanceof Double || value instanceof Float) && Double.isFinite(((Number) value).doubleValue());
+	}
+
+	private static String toHexString(Object value) {
+		if (value == null) {
+			return "null";
+		} else if (value instanceof Byte) {
+			return Integer.toHexString((Byte) value & 0xFF);
+		} else if (value instanceof Short) {
+			return Integer.toHexString((Short) value & 0xFFFF);
+		} else if (value instanceof Integer) {
+			return Integer.toHexString((Integer) value);
+		}
+		return Long.toHexString((Long) value);
+	}
+
+	/**
+	 * Appends value with precision digits after decimal point. Like {@link java.util.Formatter}, the shortest
+	 * decimal representation of value ({@link Double#toString(double)}) is rounded half up.
+	 */
+	static void appendFixed(StringBuilder builder, double value, int precision) {
+		if (Double.compare(value, 0.0) < 0) {
+			builder.append('-');
+			value = -value;
+		}
+		String representation = Double.toString(value);
+		int exponentIndex = representation.indexOf('E');
+		int end = exponentIndex < 0 ? representation.length() : exponentIndex;
+		int point = representation.indexOf('.');
+		int exponent = exponentIndex < 0 ? 0 : Integer.parseInt(representation.substring(exponentIndex + 1));
+
+		// value is 0.d0d1d2... * 10^integerDigits, where d0 is an additional '0' for the carry of rounding
+		char[] digits = new char[end];
+		int nrOfDigits = 0;
+		digits[nrOfDigits++] = '0';
+		for (int i = 0; i < end; i++) {
+			if (i != point) {
+				digits[nrOfDigits++] = representation.charAt(i);
+			}
+		}
+		int integerDigits = point + exponent + 1;
+
+		int kept = integerDigits + precision;
+		if (kept < nrOfDigits) {
+			boolean roundUp = kept >= 0 && digits[kept] >= '5';
+			nrOfDigits = Math.max(kept, 0);
+			if (roundUp) {
+				int i = nrOfDigits - 1;
+				while (digits[i] == '9') {
+					digits[i--] = '0';
+				}
+				digits[i]++;
+			}
+		}
+
+		int first = 0;
+		while (first < integerDigits - 1 && first < nrOfDigits && digits[first] == '0') {
+			first++;
+		}
+		for (int i = first; i < integerDigits; i++) {
+			builder.append(i < nrOfDigits ? digits[i] : '0');
+		}
+		if (integerDigits <= 0) {
+			builder.append('0');
+		}
+		if (precision > 0) {
+			builder.append('.');
+			for (int i = integerDigits; i < integerDigits + precision; i++) {
+				builder.append(i >= 0 && i < nrOfDigits ? digits[i] : '0');
+			}
+		}
+	}
+
+	private static boolean isAsciiLocale() {
+		Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+		LocaleCheck check = localeCheck;
+		if (check.locale != locale) {
+			check = new LocaleCheck(locale, isAscii(locale));
+			localeCheck = check;
+		}
+		return check.ascii;
+	}
+
+	private static boolean isAscii(Locale locale) {
+		DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+		return symbols.getZeroDigit() == '0' && symbols.getDecimalSeparator() == '.';
+	}
+
+	private static final class LocaleCheck {
+
+		private final Locale locale;
+		private final boolean ascii;
+
+		private LocaleCheck(Locale locale, boolean ascii) {
+			this.locale = locale;
+			this.ascii = ascii;
+		}
+	}
+
+	/**
+	 * Splits format into text before and after the specifier of the value
+	 */
+	private static final class Parser {
+
+		private final String format;
+		private final StringBuilder prefix = new StringBuilder();
+		private final StringBuilder suffix = new StringBuilder();
+		private Conversion conversion = Conversion.NONE;
+		private int width = -1;
+		private boolean leftJustified;
+		private int precision = -1;
+
+		private Parser(String format) {
+			this.format = format;
+		}
+
+		/**
+		 * @return {@code false} if format is not supported
+		 */
+		private boolean parse() {
+			int i = 0;
+			while (i < format.length()) {
+				char c = format.charAt(i++);
+				StringBuilder text = conversion == Conversion.NONE ? prefix : suffix;
+				if (c != '%') {
+					text.append(c);
+					continue;
+				}
+				if (i == format.length()) {
+					return false;
+				}
+				boolean left = false;
+				if (format.charAt(i) == '-') {
+					left = true;
+					i++;
+				}
+				int specifiedWidth = -1;
+				if (i < format.length() && format.charAt(i) >= '1' && format.charAt(i) <= '9') {
+					int start = i;
+					while (i < format.length() && Character.isDigit(format.charAt(i))) {
+						i++;
+					}
+					specifiedWidth = parseNumber(start, i);
+					if (specifiedWidth < 0) {
+						return false;
+					}
+				}
+				int specifiedPrecision = -1;
+				if (i < format.length() && format.charAt(i) == '.') {
+					int start = ++i;
+					while (i < format.length() && Character.isDigit(format.charAt(i))) {
+						i++;
+					}
+					if (start == i) {
+						return false;
+					}
+					specifiedPrecision = parseNumber(start, i);
+					if (specifiedPrecision < 0) {
+						return false;
+					}
+				}
+				if (i == format.length() || specifiedWidth < 0 && specifiedPrecision < 0 && left) {
+					return false;
+				}
+				char type = format.charAt(i++);
+				boolean plain = !left && specifiedWidth < 0 && specifiedPrecision < 0;
+				if (type == '%' && plain) {
+					text.append('%');
+				} else if (type == 'n' && plain) {
+					text.append(LINE_SEPARATOR);
+				} else if (conversion != Conversion.NONE) {
+					return false;
+				} else if (type == 's' && specifiedPrecision < 0) {
+					conversion = Conversion.STRING;
+					width = specifiedWidth;
+					leftJustified = left;
+				} else if (type == 'd' && plain) {
+					conversion = Conversion.DECIMAL;
+				} else if (type == 'x' && plain) {
+					conversion = Conversion.HEX;
+				} else if (type == 'f' && !left && specifiedWidth < 0) {
+					conversion = Conversion.FLOAT;
+					precision = specifiedPrecision < 0 ? 6 : specifiedPrecision;
+				} else {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private int parseNumber(int start, int end) {
+			try {
+				return Integer.parseInt(format.substring(start, end));
+			} catch (NumberFormatException e) {
+				return -1;
+			}
+		}
+	}
+}
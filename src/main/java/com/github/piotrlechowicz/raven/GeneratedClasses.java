@@ -0,0 +1,58 @@
+package com.github.piotrlechowicz.raven;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Finds classes generated by the Raven annotation processor.
+ *
+ * @author plechowicz
+ */
+final class GeneratedClasses {
+
+	private static final Logger log = Logger.getLogger(GeneratedClasses.class);
+
+	private GeneratedClasses() {
+	}
+
+	@SuppressWarnings("unchecked")
+	static <T> GeneratedReader<T> findReader(Class<T> clazz) {
+		return find(clazz, GeneratedReader.SUFFIX, GeneratedReader.class);
+	}
+
+	@SuppressWarnings("unchecked")
+	static <T> GeneratedSaver<T> findSaver(Class<T> clazz) {
+		return find(clazz, GeneratedSaver.SUFFIX, GeneratedSaver.class);
+	}
+
+	/**
+	 * Name of generated class: package of a class and simple names of the class and its enclosing classes
+	 * joined with {@code _}, followed by the suffix.
+	 *
+	 * @param clazz  annotated class
+	 * @param suffix suffix of generated class
+	 * @return binary name of generated class
+	 */
+	static String getGeneratedName(Class<?> clazz, String suffix) {
+		return clazz.getName().replace('$', '_') + suffix;
+	}
+
+	private static <G> G find(Class<?> clazz, String suffix, Class<G> type) {
+		if (clazz.isAnonymousClass() || clazz.isLocalClass() || clazz.getClassLoader() == null) {
+			return null;
+		}
+		String name = getGeneratedName(clazz, suffix);
+		try {
+			Class<?> generated = Class.forName(name, true, clazz.getClassLoader());
+			if (!type.isAssignableFrom(generated)) {
+				log.warn("Class " + name + " does not implement " + type.getName());
+				return null;
+			}
+			return type.cast(generated.getDeclaredConstructor().newInstance());
+		} catch (ClassNotFoundException e) {
+			return null;
+		} catch (ReflectiveOperationException | LinkageError e) {
+			log.warn("Unable to create generated class " + name, e);
+			return null;
+		}
+	}
+}
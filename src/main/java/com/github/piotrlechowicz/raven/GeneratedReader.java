@@ -0,0 +1,80 @@
+package com.github.piotrlechowicz.raven;
+
+import com.github.piotrlechowicz.raven.parsers.Parser;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reader of a class generated at compile time by the Raven annotation processor.
+ * <p>
+ * For a class {@code com.example.Network} the processor generates {@code com.example.NetworkRavenReader}
+ * (nested classes are joined with {@code _}, e.g. {@code Outer_InnerRavenReader}). If the generated class is
+ * present, {@link FlatFileReader} uses it instead of reflection.
+ * </p>
+ *
+ * @param <T> class which is initialized
+ * @author plechowicz
+ */
+public interface GeneratedReader<T> {
+
+	/**
+	 * Suffix of the name of a generated reader
+	 */
+	String SUFFIX = "RavenReader";
+
+	/**
+	 * Initializes annotated fields of instance with values of a text file
+	 *
+	 * @param instance instance to be initialized
+	 * @param cells    values of a text file
+	 */
+	void initialize(T instance, Cells cells);
+
+	/**
+	 * Logs a field which cannot be set because its value cannot be parsed, used by generated code. The field
+	 * is left unset, as it is by readers which use reflection
+	 *
+	 * @param field name of field
+	 * @param row   row of the field
+	 * @param col   column of the field
+	 * @param e     exception thrown while the value was parsed
+	 */
+	static void fieldNotSet(String field, int row, int col, IllegalArgumentException e) {
+		Logger.getLogger(FlatFileReader.class).warn("Field=" + field + " cannot be properly set; " + ", row=" + row
+				+ ", col=" + col, e);
+	}
+
+	/**
+	 * Parses list of values, used by generated code
+	 *
+	 * @param parser parser of values
+	 * @param values values to parse
+	 * @param <V>    type of parsed values
+	 * @return list of parsed values
+	 */
+	static <V> List<V> parseList(Parser<? extends V> parser, List<String> values) {
+		List<V> result = new ArrayList<>(values.size());
+		for (String value : values) {
+			result.add(parser.parse(value));
+		}
+		return result;
+	}
+
+	/**
+	 * Parses matrix of values, used by generated code
+	 *
+	 * @param parser parser of values
+	 * @param values values to parse
+	 * @param <V>    type of parsed values
+	 * @return list of rows of parsed values
+	 */
+	static <V> List<List<V>> parseMatrix(Parser<? extends V> parser, List<List<String>> values) {
+		List<List<V>> result = new ArrayList<>(values.size());
+		for (List<String> row : values) {
+			result.add(parseList(parser, row));
+		}
+		return result;
+	}
+}
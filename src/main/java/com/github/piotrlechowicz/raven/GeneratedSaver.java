@@ -0,0 +1,37 @@
+package com.github.piotrlechowicz.raven;
+
+/**
+ * Saver of a class generated at compile time by the Raven annotation processor.
+ * <p>
+ * For a class {@code com.example.Result} the processor generates {@code com.example.ResultRavenSaver}
+ * (nested classes are joined with {@code _}). If the generated class is present, {@link RavenSaver} uses it
+ * instead of reflection.
+ * </p>
+ *
+ * @param <T> class which is saved
+ * @author plechowicz
+ */
+public interface GeneratedSaver<T> {
+
+	/**
+	 * Suffix of the name of a generated saver
+	 */
+	String SUFFIX = "RavenSaver";
+
+	/**
+	 * Appends formatted header names, each followed by the delimiter
+	 *
+	 * @param builder   output
+	 * @param delimiter delimiter of values
+	 */
+	void appendHeader(StringBuilder builder, String delimiter);
+
+	/**
+	 * Appends formatted values of annotated fields, each followed by the delimiter
+	 *
+	 * @param row       instance to be saved
+	 * @param builder   output
+	 * @param delimiter delimiter of values
+	 */
+	void appendValues(T row, StringBuilder builder, String delimiter);
+}
@@ -1,21 +1,120 @@
 package com.github.piotrlechowicz.raven;
 
-import java.util.LinkedList;
+import com.github.piotrlechowicz.raven.annotations.ManyCols;
+import com.github.piotrlechowicz.raven.annotations.ManyRows;
+
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.Executor;
 
 /**
- * Class which represents matrix - list of list of String
+ * Class which represents matrix of String values - rows of tokens of a text file.
+ * <p>
+ * Tokens are stored in one flat array (or in {@link TokenIndex}) together with offsets at which rows start.
+ * Rows, columns and rectangular parts of a matrix are returned as views, values are not copied.
+ * Rows can have different length - rows shorter than the longest one are remembered, and for every
+ * requested column rows which do not have it are found once, so checking whether a column is complete
+ * does not require scanning all rows.
+ * </p>
  *
  * @author plechowicz
  */
-class Matrix {
+final class Matrix implements Cells {
+
+	private static final int[] NO_ROWS = new int[0];
 
-	private final List<List<String>> matrix;
 	private final int nrOfRows;
 
+	/**
+	 * Index of the first token of each row in {@link #tokens}, {@code rowStarts[nrOfRows]} is equal
+	 * to number of tokens; {@code null} if matrix is created on token index
+	 */
+	private final int[] rowStarts;
+	private final String[] tokens;
+
+	/**
+	 * Index on which matrix is created, {@code null} if matrix is created from Strings
+	 */
+	private final TokenIndex index;
+
+	private final int maxRowLength;
+	/**
+	 * Rows shorter than {@link #maxRowLength}, in ascending order
+	 */
+	private final int[] shortRows;
+	/**
+	 * Rows which do not have a column, created for a column when it is requested
+	 */
+	private final int[][] missingRowsByColumn;
+
+	/**
+	 * Executor on which values are parsed in parallel, {@code null} if they are parsed by the calling thread
+	 */
+	private final Executor executor;
+
 	Matrix(List<List<String>> matrix) {
-		this.matrix = matrix;
-		nrOfRows = matrix.size();
+		this.nrOfRows = matrix.size();
+		this.index = null;
+		this.executor = null;
+		this.rowStarts = new int[nrOfRows + 1];
+		int nrOfTokens = 0;
+		for (int row = 0; row < nrOfRows; row++) {
+			rowStarts[row] = nrOfTokens;
+			nrOfTokens += matrix.get(row).size();
+		}
+		rowStarts[nrOfRows] = nrOfTokens;
+		this.tokens = new String[nrOfTokens];
+		for (int row = 0; row < nrOfRows; row++) {
+			int start = rowStarts[row];
+			for (String token : matrix.get(row)) {
+				tokens[start++] = token;
+			}
+		}
+		this.maxRowLength = computeMaxRowLength();
+		this.shortRows = computeShortRows();
+		this.missingRowsByColumn = new int[maxRowLength][];
+	}
+
+	/**
+	 * Creates matrix on top of token index, values are decoded when they are requested
+	 *
+	 * @param index    positions of tokens in a file
+	 * @param executor executor on which values are parsed in parallel or {@code null}
+	 */
+	Matrix(TokenIndex index, Executor executor) {
+		this.nrOfRows = index.getNumberOfRows();
+		this.index = index;
+		this.executor = executor;
+		this.rowStarts = null;
+		this.tokens = null;
+		this.maxRowLength = computeMaxRowLength();
+		this.shortRows = computeShortRows();
+		this.missingRowsByColumn = new int[maxRowLength][];
+	}
+
+	int getNumberOfRows() {
+		return nrOfRows;
+	}
+
+	Executor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * @return index on which matrix is created, {@code null} if matrix is created from Strings
+	 */
+	TokenIndex getIndex() {
+		return index;
+	}
+
+	/**
+	 * @param row index of row
+	 * @return number of values in a row, 0 if row is out of range
+	 */
+	int getNumberOfCols(int row) {
+		return isInCorrectRange(row) ? rowLength(row) : 0;
 	}
 
 	/**
@@ -25,9 +124,25 @@ class Matrix {
 	 * @param col index of column
 	 * @return cell
 	 */
-	String getValueAt(int row, int col) {
+	@Override
+	public String getValueAt(int row, int col) {
 		if (isInCorrectRange(row, col)) {
-			return matrix.get(row).get(col);
+			return token(row, col);
+		}
+		return null;
+	}
+
+	/**
+	 * Gets value in row and column without creating a String if it is possible, see
+	 * {@link TokenIndex#getSequence(int, int)}. Returned value is valid only until the next call.
+	 *
+	 * @param row index of row
+	 * @param col index of column
+	 * @return cell
+	 */
+	CharSequence getSequenceAt(int row, int col) {
+		if (isInCorrectRange(row, col)) {
+			return index == null ? tokens[rowStarts[row] + col] : index.getSequence(row, col);
 		}
 		return null;
 	}
@@ -40,7 +155,7 @@ class Matrix {
 	 */
 	List<String> getRow(int row) {
 		if (isInCorrectRange(row)) {
-			return matrix.get(row);
+			return new RowView(row, 0, rowLength(row));
 		}
 		return null;
 	}
@@ -54,8 +169,7 @@ class Matrix {
 	 */
 	List<String> getRow(int row, int col) {
 		if (isInCorrectRange(row, col)) {
-			List<String> line = matrix.get(row);
-			return line.subList(col, line.size());
+			return new RowView(row, col, rowLength(row));
 		}
 		return null;
 	}
@@ -70,8 +184,7 @@ class Matrix {
 	 */
 	List<String> getRow(int row, int startCol, int endCol) {
 		if (isInCorrectRange(row, startCol, endCol)) {
-			List<String> line = matrix.get(row);
-			return line.subList(startCol, endCol);
+			return new RowView(row, startCol, endCol);
 		}
 		return null;
 	}
@@ -81,15 +194,11 @@ class Matrix {
 	 *
 	 * @param row index of row
 	 * @param col index of column
-	 * @return list of values
+	 * @return list of values, {@code null} if any row does not have the column
 	 */
 	List<String> getColumn(int row, int col) {
-		if (isInCorrectRange(row, col)) {
-			List<String> column = new LinkedList<>();
-			for (List<String> slicedLine : matrix.subList(row, nrOfRows)) {
-				column.add(slicedLine.get(col));
-			}
-			return column;
+		if (isInCorrectRange(row, col) && hasColumn(row, nrOfRows, col)) {
+			return new ColumnView(col, row, nrOfRows);
 		}
 		return null;
 	}
@@ -100,15 +209,11 @@ class Matrix {
 	 * @param startRow index of starting row
 	 * @param endRow   index of ending row
 	 * @param col      index of column
-	 * @return list of values
+	 * @return list of values, {@code null} if any row does not have the column
 	 */
 	List<String> getColumn(int startRow, int endRow, int col) {
-		if (isInCorrectRange(startRow, endRow, col, col + 1)) {
-			List<String> column = new LinkedList<>();
-			for (List<String> slicedLine : matrix.subList(startRow, endRow)) {
-				column.add(slicedLine.get(col));
-			}
-			return column;
+		if (isInCorrectRange(startRow, endRow, col, col + 1) && hasColumn(startRow, endRow, col)) {
+			return new ColumnView(col, startRow, endRow);
 		}
 		return null;
 	}
@@ -118,16 +223,11 @@ class Matrix {
 	 *
 	 * @param row index of row
 	 * @param col index of column
-	 * @return list of list of values
+	 * @return list of list of values, rows which end before the column are empty
 	 */
 	List<List<String>> getRowsAndCols(int row, int col) {
 		if (isInCorrectRange(row, col)) {
-			List<List<String>> slicedMatrix = new LinkedList<>();
-			List<List<String>> rows = matrix.subList(row, nrOfRows);
-			for (List<String> line : rows) {
-				slicedMatrix.add(line.subList(col, line.size()));
-			}
-			return slicedMatrix;
+			return new RowsView(row, nrOfRows, col, ManyCols.PARSE_TILL_END);
 		}
 		return null;
 	}
@@ -141,33 +241,23 @@ class Matrix {
 	 * @return list of list of values
 	 */
 	List<List<String>> getRowsAndColsInRange(int row, int startCol, int endCol) {
-		if (isInCorrectRange(row, startCol, endCol)) {
-			List<List<String>> slicedMatrix = new LinkedList<>();
-			List<List<String>> rows = matrix.subList(row, nrOfRows);
-			for (List<String> line : rows) {
-				slicedMatrix.add(line.subList(startCol, endCol));
-			}
-			return slicedMatrix;
+		if (isInCorrectRange(row, startCol, endCol) && hasColumn(row, nrOfRows, endCol - 1)) {
+			return new RowsView(row, nrOfRows, startCol, endCol);
 		}
 		return null;
 	}
 
 	/**
-	 * Gets part of matrix starting from startCol and row till endCol and last row
+	 * Gets part of matrix starting from startCol and startRow till endRow and end of each row
 	 *
 	 * @param startRow index of starting row
 	 * @param endRow   index of ending row
 	 * @param startCol index of starting column
-	 * @return list of list of values
+	 * @return list of list of values, rows which end before the column are empty
 	 */
 	List<List<String>> getRowsInRangeAndCols(int startRow, int endRow, int startCol) {
-		if (isInCorrectRange(startRow, endRow, startCol, startCol)) {
-			List<List<String>> slicedMatrix = new LinkedList<>();
-			List<List<String>> rows = matrix.subList(startRow, endRow);
-			for (List<String> line : rows) {
-				slicedMatrix.add(line.subList(startCol, line.size()));
-			}
-			return slicedMatrix;
+		if (isInCorrectRange(startRow, endRow, startCol, startCol + 1)) {
+			return new RowsView(startRow, endRow, startCol, ManyCols.PARSE_TILL_END);
 		}
 		return null;
 	}
@@ -182,24 +272,122 @@ class Matrix {
 	 * @return list of list of values
 	 */
 	List<List<String>> getRowsInRangeAndColsInRange(int startRow, int endRow, int startCol, int endCol) {
-		if (isInCorrectRange(startRow, endRow, startCol, endCol)) {
-			List<List<String>> slicedMatrix = new LinkedList<>();
-			List<List<String>> rows = matrix.subList(startRow, endRow);
-			for (List<String> line : rows) {
-				slicedMatrix.add(line.subList(startCol, endCol));
-			}
-			return slicedMatrix;
+		if (isInCorrectRange(startRow, endRow, startCol, endCol) && hasColumn(startRow, endRow, endCol - 1)) {
+			return new RowsView(startRow, endRow, startCol, endCol);
 		}
 		return null;
 	}
 
+	@Override
+	public List<String> getManyCols(int row, int col, int colSize) {
+		if (colSize == ManyCols.PARSE_TILL_END) {
+			return getRow(row, col);
+		}
+		return getRow(row, col, col + colSize);
+	}
+
+	@Override
+	public List<String> getManyRows(int row, int col, int rowSize) {
+		if (rowSize == ManyRows.PARSE_TILL_END) {
+			return getColumn(row, col);
+		}
+		return getColumn(row, row + rowSize, col);
+	}
+
+	@Override
+	public List<List<String>> getManyColsAndManyRows(int row, int col, int rowSize, int colSize) {
+		if (rowSize == ManyRows.PARSE_TILL_END) {
+			if (colSize == ManyCols.PARSE_TILL_END) {
+				return getRowsAndCols(row, col);
+			}
+			return getRowsAndColsInRange(row, col, col + colSize);
+		}
+		if (colSize == ManyCols.PARSE_TILL_END) {
+			return getRowsInRangeAndCols(row, row + rowSize, col);
+		}
+		return getRowsInRangeAndColsInRange(row, row + rowSize, col, col + colSize);
+	}
+
+	private int rowLength(int row) {
+		return index == null ? rowStarts[row + 1] - rowStarts[row] : index.getNumberOfTokens(row);
+	}
+
+	private String token(int row, int col) {
+		return index == null ? tokens[rowStarts[row] + col] : index.getToken(row, col);
+	}
+
+	/**
+	 * Checks if all rows from startRow (inclusive) till endRow (exclusive) have a column
+	 */
+	private boolean hasColumn(int startRow, int endRow, int col) {
+		if (col < 0 || col >= maxRowLength) {
+			return false;
+		}
+		int[] missingRows = getMissingRows(col);
+		int position = Arrays.binarySearch(missingRows, startRow);
+		if (position >= 0) {
+			return false;
+		}
+		int next = -position - 1;
+		return next == missingRows.length || missingRows[next] >= endRow;
+	}
+
+	private int[] getMissingRows(int col) {
+		int[] missingRows = missingRowsByColumn[col];
+		if (missingRows == null) {
+			int count = 0;
+			for (int row : shortRows) {
+				if (rowLength(row) <= col) {
+					count++;
+				}
+			}
+			missingRows = count == 0 ? NO_ROWS : new int[count];
+			count = 0;
+			for (int row : shortRows) {
+				if (rowLength(row) <= col) {
+					missingRows[count++] = row;
+				}
+			}
+			missingRowsByColumn[col] = missingRows;
+		}
+		return missingRows;
+	}
+
+	private int computeMaxRowLength() {
+		int max = 0;
+		for (int row = 0; row < nrOfRows; row++) {
+			max = Math.max(max, rowLength(row));
+		}
+		return max;
+	}
+
+	private int[] computeShortRows() {
+		int count = 0;
+		for (int row = 0; row < nrOfRows; row++) {
+			if (rowLength(row) < maxRowLength) {
+				count++;
+			}
+		}
+		if (count == 0) {
+			return NO_ROWS;
+		}
+		int[] rows = new int[count];
+		count = 0;
+		for (int row = 0; row < nrOfRows; row++) {
+			if (rowLength(row) < maxRowLength) {
+				rows[count++] = row;
+			}
+		}
+		return rows;
+	}
+
 	private boolean isInCorrectRange(int row) {
 		return row >= 0 && row < nrOfRows;
 	}
 
 	private boolean isInCorrectRange(int row, int col) {
 		if (isInCorrectRange(row))
-			if (col >= 0 && col < matrix.get(row).size())
+			if (col >= 0 && col < rowLength(row))
 				return true;
 		return false;
 	}
@@ -208,7 +396,7 @@ class Matrix {
 		if (startCol >= endCol)
 			return false;
 		if (isInCorrectRange(row))
-			if (startCol >= 0 && endCol <= matrix.get(row).size())
+			if (startCol >= 0 && endCol <= rowLength(row))
 				return true;
 		return false;
 	}
@@ -217,6 +405,135 @@ class Matrix {
 		if (startRow >= endRow || startCol >= endCol) {
 			return false;
 		}
-		return (startRow >= 0 && endRow <= nrOfRows && startCol >= 0 && endCol <= matrix.get(startRow).size());
+		return (startRow >= 0 && endRow <= nrOfRows && startCol >= 0 && endCol <= rowLength(startRow));
+	}
+
+	/**
+	 * Values of a part of a row or a column, which know their position in the matrix
+	 */
+	abstract static class CellView extends AbstractList<String> implements RandomAccess {
+
+		/**
+		 * @param i index of value
+		 * @return row of value in the matrix
+		 */
+		abstract int rowAt(int i);
+
+		/**
+		 * @param i index of value
+		 * @return column of value in the matrix
+		 */
+		abstract int colAt(int i);
+	}
+
+	/**
+	 * Values of a row from startCol (inclusive) till endCol (exclusive)
+	 */
+	private final class RowView extends CellView {
+
+		private final int row;
+		private final int startCol;
+		private final int size;
+
+		private RowView(int row, int startCol, int endCol) {
+			this.row = row;
+			this.startCol = startCol;
+			this.size = endCol - startCol;
+		}
+
+		@Override
+		public String get(int i) {
+			checkIndex(i, size);
+			return token(row, startCol + i);
+		}
+
+		@Override
+		int rowAt(int i) {
+			return row;
+		}
+
+		@Override
+		int colAt(int i) {
+			return startCol + i;
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+
+	/**
+	 * Values of a column from startRow (inclusive) till endRow (exclusive)
+	 */
+	private final class ColumnView extends CellView {
+
+		private final int col;
+		private final int startRow;
+		private final int size;
+
+		private ColumnView(int col, int startRow, int endRow) {
+			this.col = col;
+			this.startRow = startRow;
+			this.size = endRow - startRow;
+		}
+
+		@Override
+		public String get(int i) {
+			checkIndex(i, size);
+			return token(startRow + i, col);
+		}
+
+		@Override
+		int rowAt(int i) {
+			return startRow + i;
+		}
+
+		@Override
+		int colAt(int i) {
+			return col;
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+
+	/**
+	 * Rows from startRow (inclusive) till endRow (exclusive), each from startCol till endCol
+	 * or till end of the row (empty if the row ends before startCol)
+	 */
+	private final class RowsView extends AbstractList<List<String>> implements RandomAccess {
+
+		private final int startRow;
+		private final int size;
+		private final int startCol;
+		private final int endCol;
+
+		private RowsView(int startRow, int endRow, int startCol, int endCol) {
+			this.startRow = startRow;
+			this.size = endRow - startRow;
+			this.startCol = startCol;
+			this.endCol = endCol;
+		}
+
+		@Override
+		public List<String> get(int i) {
+			checkIndex(i, size);
+			int row = startRow + i;
+			return new RowView(row, startCol, endCol == ManyCols.PARSE_TILL_END ? Math.max(startCol, rowLength(row)) : endCol);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+
+	private static void checkIndex(int index, int size) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,159 @@
+package com.github.piotrlechowicz.raven;
+
+import org.apache.log4j.Logger;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Applies a function to many inputs in parallel and returns results in the order of inputs.
+ * <p>
+ * Inputs are not submitted as separate tasks. A limited number of workers is submitted to an executor and
+ * each worker takes the next input until all are taken. The calling thread works as well, so the batch
+ * finishes even if the executor does not run the workers (e.g. it is busy or the caller is its only thread),
+ * and the number of inputs processed at the same time is bounded even for executors without a limit of threads.
+ * </p>
+ *
+ * @author plechowicz
+ */
+final class ParallelBatch {
+
+	private static final Logger log = Logger.getLogger(ParallelBatch.class);
+
+	/**
+	 * Number of inputs processed at the same time by executors other than {@link ForkJoinPool}
+	 */
+	private static final int DEFAULT_PARALLELISM = 4 * Runtime.getRuntime().availableProcessors();
+
+	private ParallelBatch() {
+	}
+
+	/**
+	 * Gets executor used when none is given: executor starting a virtual thread per task if the JDK has
+	 * virtual threads, otherwise the common {@link ForkJoinPool}
+	 *
+	 * @return shared executor
+	 */
+	static Executor defaultExecutor() {
+		return DefaultExecutorHolder.EXECUTOR;
+	}
+
+	/**
+	 * Applies function to each input. If function throws for any input, all inputs are still processed and then
+	 * the exception thrown for the first of them (in the order of inputs) is thrown
+	 *
+	 * @param inputs   inputs of the function
+	 * @param function function which does not throw checked exceptions
+	 * @param executor executor of workers
+	 * @param <I>      type of inputs
+	 * @param <R>      type of results
+	 * @return results in the order of inputs
+	 */
+	static <I, R> List<R> map(List<I> inputs, Function<? super I, ? extends R> function, Executor executor) {
+		int size = inputs.size();
+		Object[] results = new Object[size];
+		Throwable[] failures = new Throwable[size];
+		AtomicInteger next = new AtomicInteger();
+		CountDownLatch done = new CountDownLatch(size);
+		Runnable worker = () -> {
+			int i;
+			while ((i = next.getAndIncrement()) < size) {
+				try {
+					results[i] = function.apply(inputs.get(i));
+				} catch (RuntimeException | Error e) {
+					failures[i] = e;
+				} finally {
+					done.countDown();
+				}
+			}
+		};
+
+		int workers = Math.min(size, getParallelism(executor)) - 1;
+		for (int i = 0; i < workers; i++) {
+			try {
+				executor.execute(worker);
+			} catch (RejectedExecutionException e) {
+				log.warn("Executor rejected worker, remaining inputs are processed by the calling thread", e);
+				break;
+			}
+		}
+		worker.run();
+		try {
+			done.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for parallel batch", e);
+		}
+		for (Throwable failure : failures) {
+			if (failure instanceof RuntimeException) {
+				throw (RuntimeException) failure;
+			} else if (failure != null) {
+				throw (Error) failure;
+			}
+		}
+		return toList(results);
+	}
+
+	/**
+	 * Applies function to indexes from 0 (inclusive) till size (exclusive), ranges of chunk indexes are
+	 * processed by a single task
+	 *
+	 * @param size     number of indexes
+	 * @param chunk    number of indexes processed by a single task
+	 * @param function function of index which does not throw checked exceptions, the exception thrown for the
+	 *                 lowest index is thrown, as if indexes were processed one by one
+	 * @param executor executor of workers
+	 * @param <R>      type of results
+	 * @return results in the order of indexes
+	 */
+	static <R> List<R> mapIndexed(int size, int chunk, IntFunction<? extends R> function, Executor executor) {
+		List<int[]> ranges = new ArrayList<>();
+		for (int start = 0; start < size; start += chunk) {
+			ranges.add(new int[]{start, Math.min(size, start + chunk)});
+		}
+		Object[] results = new Object[size];
+		map(ranges, range -> {
+			for (int i = range[0]; i < range[1]; i++) {
+				results[i] = function.apply(i);
+			}
+			return null;
+		}, executor);
+		return toList(results);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <R> List<R> toList(Object[] results) {
+		return new ArrayList<>((List<R>) Arrays.asList(results));
+	}
+
+	private static int getParallelism(Executor executor) {
+		if (executor instanceof ForkJoinPool) {
+			// the calling thread is one more worker
+			return ((ForkJoinPool) executor).getParallelism() + 1;
+		}
+		return DEFAULT_PARALLELISM;
+	}
+
+	private static final class DefaultExecutorHolder {
+
+		private static final Executor EXECUTOR = createDefaultExecutor();
+
+		private static Executor createDefaultExecutor() {
+			try {
+				Method factory = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+				return (Executor) factory.invoke(null);
+			} catch (ReflectiveOperationException | RuntimeException e) {
+				return ForkJoinPool.commonPool();
+			}
+		}
+	}
+}
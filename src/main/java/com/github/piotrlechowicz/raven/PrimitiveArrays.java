@@ -0,0 +1,171 @@
+package com.github.piotrlechowicz.raven;
+
+import com.github.piotrlechowicz.raven.BindingPlan.FieldBinding;
+import com.github.piotrlechowicz.raven.BindingPlan.Mode;
+import com.github.piotrlechowicz.raven.annotations.ManyCols;
+import com.github.piotrlechowicz.raven.annotations.ManyRows;
+import com.github.piotrlechowicz.raven.parsers.PrimitiveParser;
+
+import java.lang.reflect.Array;
+
+/**
+ * Creates arrays of primitives for fields annotated with {@link ManyCols} and/or {@link ManyRows}.
+ * <p>
+ * Supported types are {@code int[]}, {@code long[]}, {@code double[]}, {@code float[]}, {@code byte[]},
+ * {@code boolean[]} and their two dimensional forms (e.g. {@code double[][]}).
+ * </p>
+ * <ul>
+ * <li>one dimensional array annotated with {@link ManyCols} or {@link ManyRows} holds values of a row or a column,</li>
+ * <li>two dimensional array annotated with both holds rows of values (rows can have different length
+ * if columns are parsed till the end),</li>
+ * <li>one dimensional array annotated with both holds rows one after another (row-major order), the stride of a row
+ * has to be declared with {@link ManyCols#value()}.</li>
+ * </ul>
+ * <p>
+ * Arrays are created with the size known from the annotations and the file, and filled directly from tokens
+ * (with {@link PrimitiveParser} if the parser of the field is one). All values have to be in a file, otherwise
+ * {@link IllegalArgumentException} is thrown.
+ * </p>
+ *
+ * @author plechowicz
+ */
+final class PrimitiveArrays {
+
+	private PrimitiveArrays() {
+	}
+
+	/**
+	 * @param type type of a field
+	 * @return true if type is one or two dimensional array of supported primitives
+	 */
+	static boolean isSupported(Class<?> type) {
+		if (!type.isArray()) {
+			return false;
+		}
+		Class<?> component = type.getComponentType();
+		if (component.isArray()) {
+			component = component.getComponentType();
+		}
+		return component == int.class || component == long.class || component == double.class
+				|| component == float.class || component == byte.class || component == boolean.class;
+	}
+
+	/**
+	 * @param type supported array type
+	 * @return primitive type of elements
+	 */
+	static Class<?> getElementType(Class<?> type) {
+		Class<?> component = type.getComponentType();
+		return component.isArray() ? component.getComponentType() : component;
+	}
+
+	/**
+	 * Creates array with values of a matrix selected by the binding
+	 *
+	 * @param binding binding of an array field
+	 * @param matrix  content of a file
+	 * @return filled array
+	 * @throws IllegalArgumentException if values are out of a matrix or cannot be converted
+	 */
+	static Object create(FieldBinding binding, Matrix matrix) {
+		Class<?> type = binding.getAccessor().getType();
+		Class<?> elementType = getElementType(type);
+		boolean twoDimensional = type.getComponentType().isArray();
+		int row = binding.getRow();
+		int col = binding.getCol();
+		Mode mode = binding.getMode();
+
+		if (mode == Mode.MANY_COLS || mode == Mode.MANY_ROWS) {
+			if (twoDimensional) {
+				throw new IllegalArgumentException("Two dimensional array requires both @ManyCols and @ManyRows");
+			}
+			boolean manyCols = mode == Mode.MANY_COLS;
+			int size = manyCols ? countCols(matrix, row, col, binding.getColSize()) : countRows(matrix, row, binding.getRowSize());
+			Object array = Array.newInstance(elementType, size);
+			for (int i = 0; i < size; i++) {
+				fill(array, i, binding, matrix, manyCols ? row : row + i, manyCols ? col + i : col);
+			}
+			return array;
+		}
+
+		int rows = countRows(matrix, row, binding.getRowSize());
+		if (twoDimensional) {
+			Object[] array = (Object[]) Array.newInstance(type.getComponentType(), rows);
+			for (int r = 0; r < rows; r++) {
+				int cols = countCols(matrix, row + r, col, binding.getColSize());
+				Object line = Array.newInstance(elementType, cols);
+				for (int c = 0; c < cols; c++) {
+					fill(line, c, binding, matrix, row + r, col + c);
+				}
+				array[r] = line;
+			}
+			return array;
+		}
+
+		int stride = binding.getColSize();
+		if (stride == ManyCols.PARSE_TILL_END) {
+			throw new IllegalArgumentException("Stride of row-major array has to be declared with @ManyCols(n)");
+		}
+		Object array = Array.newInstance(elementType, rows * stride);
+		for (int r = 0; r < rows; r++) {
+			countCols(matrix, row + r, col, stride);
+			for (int c = 0; c < stride; c++) {
+				fill(array, r * stride + c, binding, matrix, row + r, col + c);
+			}
+		}
+		return array;
+	}
+
+	private static int countRows(Matrix matrix, int row, int rowSize) {
+		int available = matrix.getNumberOfRows() - row;
+		int size = rowSize == ManyRows.PARSE_TILL_END ? available : rowSize;
+		if (row < 0 || size <= 0 || size > available) {
+			throw new IllegalArgumentException("Rows out of range: row=" + row + ", size=" + rowSize);
+		}
+		return size;
+	}
+
+	private static int countCols(Matrix matrix, int row, int col, int colSize) {
+		int available = matrix.getNumberOfCols(row) - col;
+		int size = colSize == ManyCols.PARSE_TILL_END ? available : colSize;
+		if (col < 0 || size <= 0 || size > available) {
+			throw new IllegalArgumentException("Columns out of range: row=" + row + ", col=" + col + ", size=" + colSize);
+		}
+		return size;
+	}
+
+	private static void fill(Object array, int index, FieldBinding binding, Matrix matrix, int row, int col) {
+		CharSequence value = matrix.getSequenceAt(row, col);
+		if (value == null) {
+			throw new IllegalArgumentException("Value out of range: row=" + row + ", col=" + col);
+		}
+		PrimitiveParser<?> parser = binding.getPrimitiveParser();
+		if (parser == null || value.length() == 0) {
+			Array.set(array, index, parseBoxed(binding, value));
+			return;
+		}
+		int end = value.length();
+		Class<?> elementType = array.getClass().getComponentType();
+		if (elementType == int.class) {
+			((int[]) array)[index] = parser.parseInt(value, 0, end);
+		} else if (elementType == double.class) {
+			((double[]) array)[index] = parser.parseDouble(value, 0, end);
+		} else if (elementType == long.class) {
+			((long[]) array)[index] = parser.parseLong(value, 0, end);
+		} else if (elementType == float.class) {
+			((float[]) array)[index] = parser.parseFloat(value, 0, end);
+		} else if (elementType == byte.class) {
+			((byte[]) array)[index] = parser.parseByte(value, 0, end);
+		} else {
+			((boolean[]) array)[index] = parser.parseBoolean(value, 0, end);
+		}
+	}
+
+	private static Object parseBoxed(FieldBinding binding, CharSequence value) {
+		Object parsed = binding.getParser().parse(value.toString());
+		if (parsed == null) {
+			throw new IllegalArgumentException("Cannot store null in array of primitives");
+		}
+		return parsed;
+	}
+}
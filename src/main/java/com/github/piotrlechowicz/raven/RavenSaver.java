@@ -4,17 +4,36 @@ import com.github.piotrlechowicz.raven.annotations.Savable;
 import org.apache.log4j.Logger;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.IllegalFormatConversionException;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
 
 /**
  * Save result based on the annotations within class
+ * <p>
+ * If a saver of the class was generated by the Raven annotation processor ({@link GeneratedSaver}),
+ * it is used instead of reflection.
+ * </p>
+ * <p>
+ * Rows are formatted into chunks of about {@link #CHUNK_SIZE} characters, which are encoded into a reusable buffer
+ * and written to the file, so memory used by saving does not depend on the number of rows. Rows can be given
+ * as a list, an iterator, a stream or a spliterator.
+ * </p>
+ * <p>
+ * Rows are formatted by the calling thread, unless the saver is created with an executor
+ * ({@link #RavenSaver(Class, String, Executor)}). Then many rows are formatted in parallel on the executor:
+ * rows are taken in waves of {@link #PARTITION_ROWS} rows per thread, each partition of a wave is formatted into
+ * its own buffer and the buffers are written in the order of rows, so the file is the same as when it is saved
+ * by a single thread.
+ * </p>
  *
  * @author plechowicz
  * created on 12/9/2019.
@@ -25,24 +44,61 @@ public class RavenSaver<T> {
 
 	private static final String DEFAULT_DELIMITER = ";";
 
+	/**
+	 * Number of characters formatted before they are written to a file
+	 */
+	static final int CHUNK_SIZE = 64 << 10;
+
+	/**
+	 * Number of rows formatted by a single task when rows are formatted in parallel
+	 */
+	static final int PARTITION_ROWS = 2048;
+
+	/**
+	 * Number of partitions formatted at the same time, bounds memory used by formatted rows
+	 */
+	private static final int WAVE_PARTITIONS = 2 * Runtime.getRuntime().availableProcessors();
+
 	private final Class<T> clazz;
 	private final String delimiter;
+	/**
+	 * Executor of parallel formatting, {@code null} if rows are formatted by the calling thread
+	 */
+	private final Executor executor;
 
 	/**
 	 * Headers' name, format and values' format for all savable fields in the T class
 	 */
 	private List<String> headerNames = new ArrayList<>();
-	private List<String> headerFormats = new ArrayList<>();
-	private List<String> valueFormats = new ArrayList<>();
+	private List<FormatPlan> headerFormats = new ArrayList<>();
+	private List<FormatPlan> valueFormats = new ArrayList<>();
 	/**
 	 * Which fields should be saved from class
 	 */
 	private List<Field> fieldsToSave = new ArrayList<>();
+	/**
+	 * Saver generated by the annotation processor, {@code null} if it does not exist
+	 */
+	private final GeneratedSaver<T> generatedSaver;
 
 	public RavenSaver(Class<T> clazz, String delimiter) {
+		this(clazz, delimiter, null);
+	}
+
+	/**
+	 * @param clazz     Class for instances from which the file will be created
+	 * @param delimiter delimiter of values
+	 * @param executor  executor on which many rows are formatted in parallel, {@code null} to format all rows
+	 *                  by the calling thread
+	 */
+	public RavenSaver(Class<T> clazz, String delimiter, Executor executor) {
 		this.clazz = clazz;
 		this.delimiter = delimiter;
-		initializeFields();
+		this.executor = executor;
+		this.generatedSaver = GeneratedClasses.findSaver(clazz);
+		if (generatedSaver == null) {
+			initializeFields();
+		}
 	}
 
 	/**
@@ -63,9 +119,9 @@ public class RavenSaver<T> {
 				if (headerName.isEmpty()) headerName = field.getName();
 				headerNames.add(headerName);
 				String headerFormat = annotation.headerFormat();
-				headerFormats.add(headerFormat);
+				headerFormats.add(FormatPlan.compile(headerFormat));
 				String valueFormat = annotation.valueFormat();
-				valueFormats.add(valueFormat);
+				valueFormats.add(FormatPlan.compile(valueFormat));
 				fieldsToSave.add(field);
 			}
 		}
@@ -76,20 +132,145 @@ public class RavenSaver<T> {
 	}
 
 	public void save(String path, boolean append, List<T> rows, boolean addHeader) throws IOException {
-		File file = new File(path);
-		file.getParentFile().mkdirs();
-		if (!append && file.exists()) {
-			file.delete();
-			file.createNewFile();
+		save(path, append, rows == null ? Collections.<T>emptyIterator() : rows.iterator(), addHeader);
+	}
+
+	/**
+	 * Saves rows of a stream, stream is not closed
+	 *
+	 * @param path      path of file
+	 * @param append    whether rows are appended to existing file
+	 * @param rows      rows to save
+	 * @param addHeader whether header is saved before rows, if there is any row
+	 * @throws java.io.IOException if any.
+	 */
+	public void save(String path, boolean append, Stream<? extends T> rows, boolean addHeader) throws IOException {
+		save(path, append, rows.iterator(), addHeader);
+	}
+
+	/**
+	 * Saves rows of a spliterator
+	 *
+	 * @param path      path of file
+	 * @param append    whether rows are appended to existing file
+	 * @param rows      rows to save
+	 * @param addHeader whether header is saved before rows, if there is any row
+	 * @throws java.io.IOException if any.
+	 */
+	public void save(String path, boolean append, Spliterator<? extends T> rows, boolean addHeader) throws IOException {
+		save(path, append, Spliterators.iterator(rows), addHeader);
+	}
+
+	/**
+	 * Saves rows of an iterator, the file is the same as if the rows were saved as a list
+	 *
+	 * @param path      path of file
+	 * @param append    whether rows are appended to existing file
+	 * @param rows      rows to save
+	 * @param addHeader whether header is saved before rows, if there is any row
+	 * @throws java.io.IOException if any.
+	 */
+	public void save(String path, boolean append, Iterator<? extends T> rows, boolean addHeader) throws IOException {
+		File file = prepareFile(path, append);
+		try (ChannelOutput output = ChannelOutput.append(file.toPath())) {
+			StringBuilder builder = new StringBuilder(CHUNK_SIZE + CHUNK_SIZE / 4);
+			if (rows.hasNext()) {
+				T first = rows.next();
+				if (addHeader) {
+					addTxtHeaderString(first, builder);
+				}
+				addTxtValuesString(first, builder);
+				if (executor == null) {
+					addTxtValuesString(rows, builder, output);
+				} else {
+					saveInParallel(rows, builder, output);
+				}
+			}
+			output.write(builder);
 		}
-		try (PrintWriter writer = new PrintWriter(new FileWriter(file, true))) {
-			StringBuilder builder = createTxtResultStringBuilder(rows, addHeader);
-			// remove last new line character
-//			builder.deleteCharAt(builder.lastIndexOf("\n"));
-			writer.append(builder);
+	}
+
+	/**
+	 * Formats rows in waves, rows of a wave are formatted in parallel and written in order.
+	 * A wave which is too small to be split is formatted into the builder.
+	 */
+	private void saveInParallel(Iterator<? extends T> rows, StringBuilder builder, ChannelOutput output)
+			throws IOException {
+		int waveRows = WAVE_PARTITIONS * PARTITION_ROWS;
+		List<T> wave = new ArrayList<>(waveRows);
+		while (rows.hasNext()) {
+			if (builder.length() > 0) {
+				output.write(builder);
+				builder.setLength(0);
+			}
+			wave.clear();
+			while (wave.size() < waveRows && rows.hasNext()) {
+				wave.add(rows.next());
+			}
+			if (wave.size() < 2 * PARTITION_ROWS) {
+				addTxtValuesString(wave.iterator(), builder, output);
+				continue;
+			}
+			int partitions = (wave.size() + PARTITION_ROWS - 1) / PARTITION_ROWS;
+			// the exception of the first row which cannot be formatted is thrown, as if rows were formatted in order
+			List<StringBuilder> formatted = ParallelBatch.mapIndexed(partitions, 1, partition -> {
+				int start = partition * PARTITION_ROWS;
+				int end = Math.min(wave.size(), start + PARTITION_ROWS);
+				StringBuilder partitionBuilder = new StringBuilder(CHUNK_SIZE);
+				for (int i = start; i < end; i++) {
+					addTxtValuesString(wave.get(i), partitionBuilder);
+				}
+				return partitionBuilder;
+			}, executor);
+			for (StringBuilder partition : formatted) {
+				output.write(partition);
+			}
+		}
+	}
+
+	/**
+	 * Formats rows into the builder, which is written to the output whenever it holds at least {@link #CHUNK_SIZE}
+	 * characters
+	 *
+	 * @param rows    rows to format
+	 * @param builder builder of formatted rows
+	 * @param output  output of full builder
+	 */
+	private void addTxtValuesString(Iterator<? extends T> rows, StringBuilder builder, ChannelOutput output)
+			throws IOException {
+		while (rows.hasNext()) {
+			if (builder.length() >= CHUNK_SIZE) {
+				output.write(builder);
+				builder.setLength(0);
+			}
+			addTxtValuesString(rows.next(), builder);
 		}
 	}
 
+	/**
+	 * Opens writer which saves rows in the background, see {@link AsyncWriter}
+	 *
+	 * @param path      path of file
+	 * @param append    whether rows are appended to existing file
+	 * @param addHeader whether header is saved before the first row
+	 * @param capacity  number of rows which can wait to be written
+	 * @param policy    what is done when there are too many waiting rows
+	 * @return writer, which has to be closed
+	 * @throws java.io.IOException if file cannot be opened
+	 */
+	public AsyncWriter<T> openAsyncWriter(String path, boolean append, boolean addHeader, int capacity,
+										  BackpressurePolicy policy) throws IOException {
+		File file = prepareFile(path, append);
+		boolean[] headerMissing = {addHeader};
+		return new AsyncWriter<>(file.toPath(), capacity, policy, (row, builder) -> {
+			if (headerMissing[0]) {
+				addTxtHeaderString(row, builder);
+				headerMissing[0] = false;
+			}
+			addTxtValuesString(row, builder);
+		});
+	}
+
 	public String getValueAsString(List<T> rows, boolean addHeader) {
 		StringBuilder builder = createTxtResultStringBuilder(rows, addHeader);
 		builder.deleteCharAt(builder.lastIndexOf("\n"));
@@ -107,6 +288,16 @@ public class RavenSaver<T> {
 		return builder;
 	}
 
+	private static File prepareFile(String path, boolean append) throws IOException {
+		File file = new File(path);
+		file.getParentFile().mkdirs();
+		if (!append && file.exists()) {
+			file.delete();
+			file.createNewFile();
+		}
+		return file;
+	}
+
 	/**
 	 * Add values to StringBuilder from the list of T instances (based on provided annotations)
 	 *
@@ -115,23 +306,49 @@ public class RavenSaver<T> {
 	 */
 	private void addTxtValuesString(List<T> rows, StringBuilder builder) {
 		for (T t : rows) {
-			for (int fieldId = 0; fieldId < fieldsToSave.size(); fieldId++) {
-				try {
-					Object value = fieldsToSave.get(fieldId).get(t);
-					builder.append(String.format(valueFormats.get(fieldId), value));
-				} catch (IllegalAccessException e) {
-					log.error("Error in accessing field: " + fieldsToSave.get(fieldId), e);
-					builder.append("ERROR");
-				} catch (IllegalFormatConversionException e) {
-					String message = String.format("Error in saving value from field: {%s}, valueFormat: {%s}, check correct format",
-							fieldsToSave.get(fieldId), valueFormats.get(fieldId));
-					log.error(message);
-					throw new IllegalStateException(message, e);
-				}
-				builder.append(delimiter);
+			addTxtValuesString(t, builder);
+		}
+	}
+
+	/**
+	 * Add values of a single T instance to StringBuilder, followed by a new line
+	 *
+	 * @param t
+	 * @param builder
+	 */
+	private void addTxtValuesString(T t, StringBuilder builder) {
+		if (generatedSaver != null) {
+			addGeneratedValuesString(t, builder);
+			return;
+		}
+		for (int fieldId = 0; fieldId < fieldsToSave.size(); fieldId++) {
+			try {
+				Object value = fieldsToSave.get(fieldId).get(t);
+				valueFormats.get(fieldId).appendTo(builder, value);
+			} catch (IllegalAccessException e) {
+				log.error("Error in accessing field: " + fieldsToSave.get(fieldId), e);
+				builder.append("ERROR");
+			} catch (IllegalFormatConversionException e) {
+				String message = String.format("Error in saving value from field: {%s}, valueFormat: {%s}, check correct format",
+						fieldsToSave.get(fieldId), valueFormats.get(fieldId).getFormat());
+				log.error(message);
+				throw new IllegalStateException(message, e);
 			}
-			builder.append("\n");
+			builder.append(delimiter);
 		}
+		builder.append("\n");
+	}
+
+	private void addGeneratedValuesString(T t, StringBuilder builder) {
+		try {
+			generatedSaver.appendValues(t, builder, delimiter);
+		} catch (IllegalFormatConversionException e) {
+			String message = String.format("Error in saving values of: {%s} with generated saver, check correct format",
+					clazz);
+			log.error(message);
+			throw new IllegalStateException(message, e);
+		}
+		builder.append("\n");
 	}
 
 	/**
@@ -141,8 +358,13 @@ public class RavenSaver<T> {
 	 * @param builder
 	 */
 	private void addTxtHeaderString(T t, StringBuilder builder) {
+		if (generatedSaver != null) {
+			generatedSaver.appendHeader(builder, delimiter);
+			builder.append("\n");
+			return;
+		}
 		for (int fieldId = 0; fieldId < fieldsToSave.size(); fieldId++) {
-			builder.append(String.format(headerFormats.get(fieldId), headerNames.get(fieldId)));
+			headerFormats.get(fieldId).appendTo(builder, headerNames.get(fieldId));
 			builder.append(delimiter);
 		}
 		builder.append("\n");
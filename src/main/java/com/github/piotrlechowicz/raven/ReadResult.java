@@ -0,0 +1,61 @@
+package com.github.piotrlechowicz.raven;
+
+import java.nio.file.Path;
+
+/**
+ * Result of parsing a single file by {@link FlatFileReader#createAll(java.util.Collection)} - either
+ * an initialized instance or an exception which occurred while parsing the file.
+ *
+ * @param <T> class which is created
+ * @author plechowicz
+ */
+public final class ReadResult<T> {
+
+	private final Path path;
+	private final T value;
+	private final Exception exception;
+
+	private ReadResult(Path path, T value, Exception exception) {
+		this.path = path;
+		this.value = value;
+		this.exception = exception;
+	}
+
+	static <T> ReadResult<T> success(Path path, T value) {
+		return new ReadResult<>(path, value, null);
+	}
+
+	static <T> ReadResult<T> failure(Path path, Exception exception) {
+		return new ReadResult<>(path, null, exception);
+	}
+
+	/**
+	 * @return path of parsed file
+	 */
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * @return initialized instance, {@code null} if parsing failed
+	 */
+	public T getValue() {
+		return value;
+	}
+
+	/**
+	 * @return exception which occurred while parsing, {@code null} if parsing succeeded
+	 */
+	public Exception getException() {
+		return exception;
+	}
+
+	public boolean isSuccess() {
+		return exception == null;
+	}
+
+	@Override
+	public String toString() {
+		return "ReadResult{path=" + path + (isSuccess() ? ", value=" + value : ", exception=" + exception) + "}";
+	}
+}
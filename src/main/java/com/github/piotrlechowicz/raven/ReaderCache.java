@@ -0,0 +1,203 @@
+package com.github.piotrlechowicz.raven;
+
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of instances created by {@link FlatFileReader}, so a file which did not change is not parsed again.
+ * <p>
+ * Instances are cached per class and canonical path of a file, together with the last modification time
+ * and size of the file. If any of them changes, the file is parsed again. The least recently used instances
+ * are evicted when there are more than {@code maxEntries} of them, or when the sum of sizes of their files
+ * (used as an estimate of memory used by instances) exceeds {@code maxBytes}.
+ * </p>
+ * <p>
+ * Cached instance can be shared ({@link #getShared(FlatFileReader, String)}) - then it must not be modified,
+ * or copied ({@link #getCopy(FlatFileReader, String)}) - then fields annotated with
+ * {@link com.github.piotrlechowicz.raven.annotations.Parsable} are copied into a new instance, with lists
+ * and arrays copied deeply.
+ * </p>
+ * <p>
+ * Cache can be used by many threads. If many threads miss the same file at the same time, the file may be parsed
+ * more than once.
+ * </p>
+ *
+ * @author plechowicz
+ */
+public final class ReaderCache {
+
+	private static final Logger log = Logger.getLogger(ReaderCache.class);
+
+	/**
+	 * Denotes that number of entries or bytes is not limited
+	 */
+	public static final int UNLIMITED = -1;
+
+	private final int maxEntries;
+	private final long maxBytes;
+
+	private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long bytes;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * <p>Constructor for ReaderCache.</p>
+	 *
+	 * @param maxEntries maximal number of cached instances or {@link #UNLIMITED}
+	 * @param maxBytes   maximal sum of sizes of files of cached instances or {@link #UNLIMITED}
+	 */
+	public ReaderCache(int maxEntries, long maxBytes) {
+		this.maxEntries = maxEntries;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Gets cached instance created from a file, or creates and caches it if file was not read yet or has changed.
+	 * Returned instance is shared and must not be modified.
+	 *
+	 * @param reader reader of the class
+	 * @param path   path of text file
+	 * @param <T>    type of class
+	 * @return shared instance
+	 * @throws java.io.IOException when file does not exist
+	 */
+	public <T> T getShared(FlatFileReader<T> reader, String path) throws IOException {
+		File file = new File(path);
+		Key key = new Key(reader.getType(), file.getCanonicalPath());
+		long lastModified = file.lastModified();
+		long size = file.length();
+
+		synchronized (this) {
+			Entry entry = entries.get(key);
+			if (entry != null && entry.lastModified == lastModified && entry.size == size) {
+				hits.incrementAndGet();
+				return reader.getType().cast(entry.value);
+			}
+		}
+		misses.incrementAndGet();
+		T value = reader.create(path);
+		put(key, new Entry(value, lastModified, size));
+		return value;
+	}
+
+	/**
+	 * Gets copy of cached instance created from a file, see {@link #getShared(FlatFileReader, String)}.
+	 * Returned instance can be modified.
+	 *
+	 * @param reader reader of the class
+	 * @param path   path of text file
+	 * @param <T>    type of class
+	 * @return new instance
+	 * @throws java.io.IOException when file does not exist
+	 */
+	public <T> T getCopy(FlatFileReader<T> reader, String path) throws IOException {
+		return BindingPlan.of(reader.getType()).copy(getShared(reader, path));
+	}
+
+	/**
+	 * Removes all cached instances
+	 */
+	public synchronized void invalidateAll() {
+		entries.clear();
+		bytes = 0;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @return sum of sizes of files of cached instances
+	 */
+	public synchronized long getEstimatedBytes() {
+		return bytes;
+	}
+
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	public long getEvictionCount() {
+		return evictions.get();
+	}
+
+	private synchronized void put(Key key, Entry entry) {
+		if (maxBytes != UNLIMITED && entry.size > maxBytes) {
+			log.debug("File " + key.path + " is larger than the cache, it is not cached");
+			return;
+		}
+		Entry previous = entries.put(key, entry);
+		if (previous != null) {
+			bytes -= previous.size;
+		}
+		bytes += entry.size;
+
+		Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+		while ((maxEntries != UNLIMITED && entries.size() > maxEntries) || (maxBytes != UNLIMITED && bytes > maxBytes)) {
+			Entry evicted = eldest.next().getValue();
+			eldest.remove();
+			bytes -= evicted.size;
+			evictions.incrementAndGet();
+		}
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "ReaderCache{entries=" + entries.size() + ", bytes=" + bytes + ", hits=" + hits + ", misses=" + misses
+				+ ", evictions=" + evictions + "}";
+	}
+
+	private static final class Key {
+
+		private final Class<?> clazz;
+		private final String path;
+
+		private Key(Class<?> clazz, String path) {
+			this.clazz = clazz;
+			this.path = path;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key key = (Key) o;
+			return clazz == key.clazz && path.equals(key.path);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * clazz.hashCode() + path.hashCode();
+		}
+	}
+
+	private static final class Entry {
+
+		private final Object value;
+		private final long lastModified;
+		private final long size;
+
+		private Entry(Object value, long lastModified, long size) {
+			this.value = value;
+			this.lastModified = lastModified;
+			this.size = size;
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package com.github.piotrlechowicz.raven;
+
+/**
+ * Defines how {@link FlatFileReader} binds values from a text file to fields.
+ *
+ * @author plechowicz
+ */
+public enum ReaderEngine {
+
+	/**
+	 * Fields are initialized one by one according to the binding plan of a class,
+	 * selecting the way of initialization for each field.
+	 */
+	REFLECTIVE,
+
+	/**
+	 * On the first use of a class, the binding plan is compiled into a chain of binders specialized for each field
+	 * (position, size, parser and setter are resolved in advance), so initialization runs without any dispatch.
+	 * Gives the same results as {@link #REFLECTIVE}.
+	 */
+	COMPILED
+}
@@ -0,0 +1,117 @@
+package com.github.piotrlechowicz.raven;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue for many producers and a single consumer.
+ * <p>
+ * Each slot has a sequence number (D. Vyukov's bounded queue): a producer claims position {@code p} with a single
+ * compare-and-set of the tail when the slot's sequence is {@code p}, stores the element and publishes it by
+ * setting the sequence to {@code p + 1}. Consumer takes the element and releases the slot for the next round by
+ * setting its sequence to {@code p + capacity}. Time of publishing is stored with each element.
+ * </p>
+ * <p>
+ * {@link #poll()} and {@link #getPublishTime()} must be called by one thread at a time.
+ * </p>
+ *
+ * @param <E> type of elements
+ * @author plechowicz
+ */
+final class RingBuffer<E> {
+
+	private final int mask;
+	private final AtomicLongArray sequences;
+	private final AtomicReferenceArray<E> elements;
+	private final long[] publishTimes;
+
+	private final AtomicLong tail = new AtomicLong();
+	private volatile long head;
+
+	/**
+	 * Time of publishing of the last polled element
+	 */
+	private long publishTime;
+
+	/**
+	 * @param capacity capacity, rounded up to a power of two
+	 */
+	RingBuffer(int capacity) {
+		int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+		this.mask = size - 1;
+		this.sequences = new AtomicLongArray(size);
+		this.elements = new AtomicReferenceArray<>(size);
+		this.publishTimes = new long[size];
+		for (int i = 0; i < size; i++) {
+			sequences.set(i, i);
+		}
+	}
+
+	/**
+	 * @param element element to add
+	 * @return {@code false} if queue is full
+	 */
+	boolean offer(E element) {
+		long position = tail.get();
+		while (true) {
+			int slot = (int) position & mask;
+			long difference = sequences.get(slot) - position;
+			if (difference == 0) {
+				if (tail.compareAndSet(position, position + 1)) {
+					publishTimes[slot] = System.nanoTime();
+					elements.lazySet(slot, element);
+					sequences.lazySet(slot, position + 1);
+					return true;
+				}
+				position = tail.get();
+			} else if (difference < 0) {
+				return false;
+			} else {
+				position = tail.get();
+			}
+		}
+	}
+
+	/**
+	 * @return the oldest element or {@code null} if queue is empty or the oldest element is not published yet
+	 */
+	E poll() {
+		long position = head;
+		int slot = (int) position & mask;
+		if (sequences.get(slot) != position + 1) {
+			return null;
+		}
+		E element = elements.get(slot);
+		publishTime = publishTimes[slot];
+		elements.lazySet(slot, null);
+		head = position + 1;
+		sequences.lazySet(slot, position + mask + 1);
+		return element;
+	}
+
+	/**
+	 * @return time of publishing ({@link System#nanoTime()}) of the element returned by the last {@link #poll()}
+	 */
+	long getPublishTime() {
+		return publishTime;
+	}
+
+	/**
+	 * @return number of claimed positions, including elements which are not published yet
+	 */
+	long getTail() {
+		return tail.get();
+	}
+
+	/**
+	 * @return number of polled elements
+	 */
+	long getHead() {
+		return head;
+	}
+
+	int capacity() {
+		return mask + 1;
+	}
+}
@@ -0,0 +1,27 @@
+package com.github.piotrlechowicz.raven;
+
+/**
+ * Denotes whether {@link FlatFileReader} stores positions of tokens of a text file in a binary snapshot
+ * (a file next to the text file, with {@code .raven} appended to its name), so the text file does not have
+ * to be tokenized again when it is read next time.
+ *
+ * @author plechowicz
+ */
+public enum SnapshotMode {
+
+	/**
+	 * Snapshots are neither read nor written
+	 */
+	DISABLED,
+
+	/**
+	 * Snapshot is used if the size and the last modification time of a text file did not change.
+	 * Checksum of the file is not computed
+	 */
+	SIZE_AND_TIME,
+
+	/**
+	 * Snapshot is used if the size, the last modification time and the CRC32 checksum of a text file did not change
+	 */
+	CHECKSUM
+}
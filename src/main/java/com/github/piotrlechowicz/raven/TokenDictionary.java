@@ -0,0 +1,190 @@
+package com.github.piotrlechowicz.raven;
+
+import com.github.piotrlechowicz.raven.annotations.Dictionary;
+import com.github.piotrlechowicz.raven.parsers.Parser;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parsed values of distinct tokens of a field annotated with {@link Dictionary}, created for each read file.
+ * <p>
+ * If matrix is created on {@link TokenIndex}, tokens are compared by bytes, so only the first occurrence
+ * of a token is decoded to a String and parsed. Otherwise tokens are compared as Strings. When number of
+ * distinct tokens exceeds {@link #MAX_ENTRIES}, new tokens are parsed without being remembered.
+ * Not thread safe.
+ * </p>
+ *
+ * @author plechowicz
+ */
+final class TokenDictionary {
+
+	static final int MAX_ENTRIES = 1 << 16;
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private final Parser<?> parser;
+	private final TokenIndex index;
+
+	/**
+	 * Open addressing table of entry numbers increased by one, 0 denotes empty slot
+	 */
+	private int[] slots = new int[INITIAL_CAPACITY];
+	private int[] hashes = new int[INITIAL_CAPACITY / 2];
+	/**
+	 * Position of the first occurrence of a token in data of {@link #index}
+	 */
+	private int[] starts = new int[INITIAL_CAPACITY / 2];
+	private int[] ends = new int[INITIAL_CAPACITY / 2];
+	private Object[] values = new Object[INITIAL_CAPACITY / 2];
+	private int size;
+
+	/**
+	 * Used if matrix is not created on token index
+	 */
+	private final Map<String, Object> valuesByToken;
+
+	TokenDictionary(Parser<?> parser, Matrix matrix) {
+		this.parser = parser;
+		this.index = matrix.getIndex();
+		this.valuesByToken = index == null ? new HashMap<>() : null;
+	}
+
+	/**
+	 * Parses values, values of equal tokens are parsed once
+	 *
+	 * @param values values to parse, a part of a row or a column of the matrix
+	 * @return parsed values
+	 */
+	List<Object> convertList(List<String> values) {
+		List<Object> result = new ArrayList<>(values.size());
+		if (index != null && values instanceof Matrix.CellView) {
+			Matrix.CellView cells = (Matrix.CellView) values;
+			for (int i = 0; i < cells.size(); i++) {
+				result.add(get(cells.rowAt(i), cells.colAt(i)));
+			}
+		} else {
+			for (String value : values) {
+				result.add(get(value));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Parses rows of values, values of equal tokens are parsed once
+	 *
+	 * @param values rows of values to parse
+	 * @return parsed rows
+	 */
+	List<List<Object>> convertMatrix(List<List<String>> values) {
+		List<List<Object>> result = new ArrayList<>(values.size());
+		for (List<String> row : values) {
+			result.add(convertList(row));
+		}
+		return result;
+	}
+
+	/**
+	 * @return number of distinct tokens
+	 */
+	int size() {
+		return index == null ? valuesByToken.size() : size;
+	}
+
+	private Object get(String token) {
+		if (token == null) {
+			return parser.parse(null);
+		}
+		Object value = valuesByToken.get(token);
+		if (value == null && !valuesByToken.containsKey(token)) {
+			value = parser.parse(token);
+			if (valuesByToken.size() < MAX_ENTRIES) {
+				valuesByToken.put(token, value);
+			}
+		}
+		return value;
+	}
+
+	private Object get(int row, int col) {
+		ByteBuffer data = index.getData();
+		int token = index.getRowStarts()[row] + col;
+		int start = index.getTokenStarts()[token];
+		int end = index.getTokenEnds()[token];
+		int hash = hash(data, start, end);
+		int mask = slots.length - 1;
+		for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+			int entry = slots[slot] - 1;
+			if (entry < 0) {
+				Object value = parser.parse(index.getToken(row, col));
+				if (size < MAX_ENTRIES) {
+					add(slot, hash, start, end, value);
+				}
+				return value;
+			}
+			if (hashes[entry] == hash && equal(data, starts[entry], ends[entry], start, end)) {
+				return values[entry];
+			}
+		}
+	}
+
+	private void add(int slot, int hash, int start, int end, Object value) {
+		if (size == hashes.length) {
+			grow();
+			int mask = slots.length - 1;
+			slot = hash & mask;
+			while (slots[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+		}
+		hashes[size] = hash;
+		starts[size] = start;
+		ends[size] = end;
+		values[size] = value;
+		slots[slot] = ++size;
+	}
+
+	/**
+	 * Doubles capacity, table is kept at most half full
+	 */
+	private void grow() {
+		int capacity = hashes.length * 2;
+		hashes = Arrays.copyOf(hashes, capacity);
+		starts = Arrays.copyOf(starts, capacity);
+		ends = Arrays.copyOf(ends, capacity);
+		values = Arrays.copyOf(values, capacity);
+		slots = new int[capacity * 2];
+		int mask = slots.length - 1;
+		for (int entry = 0; entry < size; entry++) {
+			int slot = hashes[entry] & mask;
+			while (slots[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			slots[slot] = entry + 1;
+		}
+	}
+
+	private static int hash(ByteBuffer data, int start, int end) {
+		int hash = 1;
+		for (int i = start; i < end; i++) {
+			hash = 31 * hash + data.get(i);
+		}
+		return hash ^ (hash >>> 16);
+	}
+
+	private static boolean equal(ByteBuffer data, int start, int end, int otherStart, int otherEnd) {
+		if (end - start != otherEnd - otherStart) {
+			return false;
+		}
+		for (int i = start, j = otherStart; i < end; i++, j++) {
+			if (data.get(i) != data.get(j)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
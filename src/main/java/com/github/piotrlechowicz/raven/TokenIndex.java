@@ -0,0 +1,501 @@
+package com.github.piotrlechowicz.raven;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Positions of tokens in bytes of a text file.
+ * <p>
+ * Bytes are scanned for line terminators ({@code \n}, {@code \r}, {@code \r\n}) and whitespaces, and
+ * boundaries of tokens are stored in primitive arrays. Tokens are the same as with reading lines of a file and
+ * splitting them with {@code line.trim().split("\\s+")}, in particular blank line contains one empty token.
+ * Strings are created only when a token is requested, tokens which contain only ASCII characters
+ * (or any characters if file is in ISO-8859-1) are decoded without a charset decoder.
+ * </p>
+ * <p>
+ * Bytes can be scanned only for charsets in which whitespaces and line terminators are encoded as single
+ * ASCII bytes which do not appear inside of other characters, see {@link #isSupported(Charset)}.
+ * </p>
+ *
+ * @author plechowicz
+ */
+final class TokenIndex {
+
+	/**
+	 * Denotes that all rows/columns are indexed
+	 */
+	static final int ALL = -1;
+
+	/**
+	 * Files of at least twice this size are tokenized in parallel, in chunks of about this size. Files larger than
+	 * 2 GB are not indexed at all (positions are ints), they are read line by line
+	 */
+	static final int PARALLEL_CHUNK_SIZE = 16 << 20;
+
+	/**
+	 * Smallest file which is memory mapped, smaller files are read into heap buffers
+	 */
+	static final int MAPPED_MIN_SIZE = 1 << 20;
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	/**
+	 * Number of bytes which are copied from a file and classified at once
+	 */
+	private static final int BLOCK_SIZE = 4 << 10;
+
+	private static final ByteScanner SCANNER = ByteScanner.getInstance();
+
+	private final ByteBuffer data;
+	private final Charset charset;
+	private final boolean latin1;
+
+	private int nrOfRows;
+	private int nrOfTokens;
+	/**
+	 * Index of the first token of each row, {@code rowStarts[nrOfRows]} is equal to number of tokens
+	 */
+	private int[] rowStarts;
+	private int[] tokenStarts;
+	private int[] tokenEnds;
+
+	/**
+	 * View returned by {@link #getSequence(int, int)}
+	 */
+	private final TokenSequence sequence = new TokenSequence();
+
+	private TokenIndex(ByteBuffer data, Charset charset) {
+		this.data = data;
+		this.charset = charset;
+		this.latin1 = StandardCharsets.ISO_8859_1.equals(charset);
+		this.rowStarts = new int[INITIAL_CAPACITY + 1];
+		this.tokenStarts = new int[INITIAL_CAPACITY];
+		this.tokenEnds = new int[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Checks if bytes in a charset can be scanned for whitespaces and line terminators
+	 *
+	 * @param charset charset of a file
+	 * @return true if charset is ASCII compatible
+	 */
+	static boolean isSupported(Charset charset) {
+		String name = charset.name();
+		return StandardCharsets.UTF_8.equals(charset) || StandardCharsets.US_ASCII.equals(charset)
+				|| name.startsWith("ISO-8859-") || name.startsWith("windows-125");
+	}
+
+	/**
+	 * Reads a file into memory. Files of at least {@link #MAPPED_MIN_SIZE} bytes are memory mapped, smaller files
+	 * are read into a heap buffer, so reading many small files does not create a mapping for each of them
+	 *
+	 * @param path path of a file
+	 * @return content of a file or {@code null} if file is too large to be mapped
+	 * @throws IOException when file cannot be read
+	 */
+	static ByteBuffer readFile(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				return null;
+			}
+			if (size < MAPPED_MIN_SIZE) {
+				ByteBuffer data = ByteBuffer.allocate((int) size);
+				while (data.hasRemaining()) {
+					if (channel.read(data) < 0) {
+						break;
+					}
+				}
+				data.flip();
+				return data;
+			}
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		}
+	}
+
+	/**
+	 * Indexes tokens in bytes from position 0 till limit of a buffer
+	 *
+	 * @param data    content of a file
+	 * @param charset charset of a file, has to be {@link #isSupported(Charset) supported}
+	 * @param maxRows number of rows to index or {@link #ALL}
+	 * @param maxCols number of tokens to index in each row or {@link #ALL}
+	 * @return index
+	 */
+	static TokenIndex of(ByteBuffer data, Charset charset, int maxRows, int maxCols) {
+		TokenIndex index = new TokenIndex(data, charset);
+		index.scan(0, data.limit(), maxRows == ALL ? Integer.MAX_VALUE : maxRows, maxCols == ALL ? Integer.MAX_VALUE : maxCols);
+		return index;
+	}
+
+	/**
+	 * Indexes tokens, large files in which all rows are indexed are split into chunks which end with line
+	 * terminators, and chunks are indexed in parallel. Index is the same as created by
+	 * {@link #of(ByteBuffer, Charset, int, int)}.
+	 *
+	 * @param data     content of a file
+	 * @param charset  charset of a file, has to be {@link #isSupported(Charset) supported}
+	 * @param maxRows  number of rows to index or {@link #ALL}
+	 * @param maxCols  number of tokens to index in each row or {@link #ALL}
+	 * @param executor executor of chunks, {@code null} if file is indexed by the calling thread
+	 * @return index
+	 */
+	static TokenIndex of(ByteBuffer data, Charset charset, int maxRows, int maxCols, Executor executor) {
+		return of(data, charset, maxRows, maxCols, executor, PARALLEL_CHUNK_SIZE);
+	}
+
+	static TokenIndex of(ByteBuffer data, Charset charset, int maxRows, int maxCols, Executor executor, int chunkSize) {
+		if (executor == null || maxRows != ALL || data.limit() < 2L * chunkSize) {
+			return of(data, charset, maxRows, maxCols);
+		}
+		int tokensInRow = maxCols == ALL ? Integer.MAX_VALUE : maxCols;
+		List<int[]> chunks = split(data, chunkSize);
+		List<TokenIndex> parts = ParallelBatch.map(chunks, chunk -> {
+			TokenIndex part = new TokenIndex(data, charset);
+			part.scan(chunk[0], chunk[1], Integer.MAX_VALUE, tokensInRow);
+			return part;
+		}, executor);
+		return join(data, charset, parts);
+	}
+
+	/**
+	 * Splits bytes into chunks of at least chunkSize bytes, each chunk (except the last one) ends with a line
+	 * terminator ({@code \r\n} is never split)
+	 */
+	private static List<int[]> split(ByteBuffer data, int chunkSize) {
+		List<int[]> chunks = new ArrayList<>();
+		int limit = data.limit();
+		int start = 0;
+		while (start < limit) {
+			int end = (int) Math.min((long) start + chunkSize, limit);
+			if (end < limit) {
+				end = Math.min(findLineTerminator(data, end - 1, limit) + 1, limit);
+			}
+			if (end < limit && data.get(end - 1) == '\r' && data.get(end) == '\n') {
+				end++;
+			}
+			chunks.add(new int[]{start, end});
+			start = end;
+		}
+		return chunks;
+	}
+
+	private static int findLineTerminator(ByteBuffer data, int from, int to) {
+		int i = from;
+		while (i < to && data.get(i) != '\n' && data.get(i) != '\r') {
+			i++;
+		}
+		return i;
+	}
+
+	private static TokenIndex join(ByteBuffer data, Charset charset, List<TokenIndex> parts) {
+		int nrOfRows = 0;
+		int nrOfTokens = 0;
+		for (TokenIndex part : parts) {
+			nrOfRows += part.nrOfRows;
+			nrOfTokens += part.nrOfTokens;
+		}
+		int[] rowStarts = new int[nrOfRows + 1];
+		int[] tokenStarts = new int[nrOfTokens];
+		int[] tokenEnds = new int[nrOfTokens];
+		int row = 0;
+		int token = 0;
+		for (TokenIndex part : parts) {
+			for (int i = 0; i < part.nrOfRows; i++) {
+				rowStarts[row + i] = part.rowStarts[i] + token;
+			}
+			System.arraycopy(part.tokenStarts, 0, tokenStarts, token, part.nrOfTokens);
+			System.arraycopy(part.tokenEnds, 0, tokenEnds, token, part.nrOfTokens);
+			row += part.nrOfRows;
+			token += part.nrOfTokens;
+		}
+		rowStarts[nrOfRows] = nrOfTokens;
+		return of(data, charset, nrOfRows, rowStarts, tokenStarts, tokenEnds);
+	}
+
+	/**
+	 * Creates index from positions of tokens which were already found, see {@link TokenIndexSnapshot}
+	 *
+	 * @param data        content of a file
+	 * @param charset     charset of a file
+	 * @param nrOfRows    number of rows
+	 * @param rowStarts   index of the first token of each row, followed by number of tokens
+	 * @param tokenStarts position of the first byte of each token
+	 * @param tokenEnds   position after the last byte of each token
+	 * @return index
+	 */
+	static TokenIndex of(ByteBuffer data, Charset charset, int nrOfRows, int[] rowStarts, int[] tokenStarts, int[] tokenEnds) {
+		TokenIndex index = new TokenIndex(data, charset);
+		index.nrOfRows = nrOfRows;
+		index.nrOfTokens = rowStarts[nrOfRows];
+		index.rowStarts = rowStarts;
+		index.tokenStarts = tokenStarts;
+		index.tokenEnds = tokenEnds;
+		return index;
+	}
+
+	ByteBuffer getData() {
+		return data;
+	}
+
+	int getNumberOfTokens() {
+		return nrOfTokens;
+	}
+
+	/**
+	 * @return index of the first token of each row, followed by number of tokens; array can be longer
+	 */
+	int[] getRowStarts() {
+		return rowStarts;
+	}
+
+	/**
+	 * @return position of the first byte of each token; array can be longer than number of tokens
+	 */
+	int[] getTokenStarts() {
+		return tokenStarts;
+	}
+
+	/**
+	 * @return position after the last byte of each token; array can be longer than number of tokens
+	 */
+	int[] getTokenEnds() {
+		return tokenEnds;
+	}
+
+	int getNumberOfRows() {
+		return nrOfRows;
+	}
+
+	int getNumberOfTokens(int row) {
+		return rowStarts[row + 1] - rowStarts[row];
+	}
+
+	/**
+	 * Decodes token
+	 *
+	 * @param row index of row
+	 * @param col index of token in a row
+	 * @return token
+	 */
+	String getToken(int row, int col) {
+		int token = rowStarts[row] + col;
+		int start = tokenStarts[token];
+		int length = tokenEnds[token] - start;
+		byte[] bytes = new byte[length];
+		boolean ascii = true;
+		for (int i = 0; i < length; i++) {
+			byte b = data.get(start + i);
+			bytes[i] = b;
+			ascii &= b >= 0;
+		}
+		return new String(bytes, ascii || latin1 ? StandardCharsets.ISO_8859_1 : charset);
+	}
+
+	/**
+	 * Gets token without decoding it to a String, if it is possible. ASCII tokens (or any tokens if file is in
+	 * ISO-8859-1) are returned as a view of bytes in a file. The view is reused by subsequent calls, so it
+	 * is valid only until the next call. Other tokens are decoded.
+	 *
+	 * @param row index of row
+	 * @param col index of token in a row
+	 * @return characters of a token
+	 */
+	CharSequence getSequence(int row, int col) {
+		int token = rowStarts[row] + col;
+		int start = tokenStarts[token];
+		int end = tokenEnds[token];
+		if (!latin1) {
+			for (int i = start; i < end; i++) {
+				if (data.get(i) < 0) {
+					return getToken(row, col);
+				}
+			}
+		}
+		sequence.start = start;
+		sequence.end = end;
+		return sequence;
+	}
+
+	/**
+	 * Indexes lines which start at position and end before limit. Bytes are copied into blocks and classified by
+	 * {@link ByteScanner}, tokens are runs of bytes which are neither whitespaces nor line terminators. Lines which
+	 * contain other bytes removed by {@link String#trim()} (control characters) are indexed again byte by byte.
+	 */
+	private void scan(int position, int limit, int maxRows, int maxCols) {
+		ByteBuffer source = data.duplicate();
+		byte[] block = new byte[BLOCK_SIZE];
+		int maxWords = BLOCK_SIZE / ByteScanner.WORD_SIZE;
+		long[] spaces = new long[maxWords];
+		long[] cr = new long[maxWords];
+		long[] lf = new long[maxWords];
+		long[] controls = new long[maxWords];
+		int lineStart = position;
+		int tokenStart = position;
+		int tokensInRow = 0;
+		boolean trimmed = false;
+		long textBefore = 0;
+		long crBefore = 0;
+		for (int blockStart = position; blockStart < limit && nrOfRows < maxRows; blockStart += BLOCK_SIZE) {
+			int length = Math.min(BLOCK_SIZE, limit - blockStart);
+			source.position(blockStart);
+			source.get(block, 0, length);
+			int words = (length + ByteScanner.WORD_SIZE - 1) / ByteScanner.WORD_SIZE;
+			// bytes after limit are seen as spaces, they end the last token
+			Arrays.fill(block, length, words * ByteScanner.WORD_SIZE, (byte) ' ');
+			SCANNER.classify(block, words, spaces, cr, lf, controls);
+			for (int word = 0; word < words; word++) {
+				long text = ~(spaces[word] | cr[word] | lf[word]);
+				long textStarts = text & ~(text << 1 | textBefore);
+				long textEnds = ~text & (text << 1 | textBefore);
+				long crlf = lf[word] & (cr[word] << 1 | crBefore);
+				long lineEnds = cr[word] | lf[word] & ~crlf;
+				boolean control = controls[word] != 0;
+				trimmed |= control;
+				textBefore = text >>> 63;
+				crBefore = cr[word] >>> 63;
+				int wordStart = blockStart + word * ByteScanner.WORD_SIZE;
+				for (long events = textStarts | textEnds | lineEnds | crlf; events != 0; events &= events - 1) {
+					long bit = events & -events;
+					int i = wordStart + Long.numberOfTrailingZeros(bit);
+					if ((textEnds & bit) != 0 && tokensInRow++ < maxCols) {
+						addToken(tokenStart, i);
+					}
+					if ((textStarts & bit) != 0) {
+						tokenStart = i;
+					} else if ((lineEnds & bit) != 0) {
+						endLine(lineStart, i, maxCols, tokensInRow == 0, trimmed);
+						if (nrOfRows == maxRows) {
+							return;
+						}
+						lineStart = i + 1;
+						tokensInRow = 0;
+						trimmed = control;
+					} else if ((crlf & bit) != 0) {
+						lineStart = i + 1;
+					}
+				}
+			}
+		}
+		if (textBefore != 0 && tokensInRow++ < maxCols) {
+			addToken(tokenStart, limit);
+		}
+		if (lineStart < limit && nrOfRows < maxRows) {
+			endLine(lineStart, limit, maxCols, tokensInRow == 0, trimmed);
+		}
+	}
+
+	/**
+	 * Ends a row with tokens found in a line, line is indexed again if its tokens have to be trimmed
+	 */
+	private void endLine(int start, int end, int maxCols, boolean blank, boolean trimmed) {
+		if (trimmed) {
+			nrOfTokens = rowStarts[nrOfRows];
+			indexLine(start, end, maxCols);
+			return;
+		}
+		if (blank) {
+			addToken(end, end);
+		}
+		addRow();
+	}
+
+	/**
+	 * Indexes tokens of a line as {@code line.trim().split("\\s+")} would split it
+	 */
+	private void indexLine(int start, int end, int maxCols) {
+		while (start < end && (data.get(start) & 0xff) <= ' ') {
+			start++;
+		}
+		while (end > start && (data.get(end - 1) & 0xff) <= ' ') {
+			end--;
+		}
+		int tokensInRow = 0;
+		if (start == end) {
+			addToken(start, end);
+			tokensInRow++;
+		}
+		int tokenStart = start;
+		for (int i = start; i < end && tokensInRow < maxCols; i++) {
+			if (isWhitespace(data.get(i))) {
+				addToken(tokenStart, i);
+				tokensInRow++;
+				while (isWhitespace(data.get(i + 1))) {
+					i++;
+				}
+				tokenStart = i + 1;
+			}
+		}
+		if (start < end && tokensInRow < maxCols) {
+			addToken(tokenStart, end);
+		}
+		addRow();
+	}
+
+	private void addToken(int start, int end) {
+		if (nrOfTokens == tokenStarts.length) {
+			tokenStarts = Arrays.copyOf(tokenStarts, nrOfTokens * 2);
+			tokenEnds = Arrays.copyOf(tokenEnds, nrOfTokens * 2);
+		}
+		tokenStarts[nrOfTokens] = start;
+		tokenEnds[nrOfTokens] = end;
+		nrOfTokens++;
+	}
+
+	private void addRow() {
+		nrOfRows++;
+		if (nrOfRows + 1 > rowStarts.length) {
+			rowStarts = Arrays.copyOf(rowStarts, rowStarts.length * 2);
+		}
+		rowStarts[nrOfRows] = nrOfTokens;
+	}
+
+	/**
+	 * @return true for bytes matched by regular expression {@code \s}, except line terminators
+	 */
+	private static boolean isWhitespace(byte b) {
+		return b == ' ' || b == '\t' || b == 0x0B || b == '\f';
+	}
+
+	/**
+	 * Bytes of a token seen as ISO-8859-1 characters
+	 */
+	private final class TokenSequence implements CharSequence {
+
+		private int start;
+		private int end;
+
+		@Override
+		public int length() {
+			return end - start;
+		}
+
+		@Override
+		public char charAt(int index) {
+			return (char) (data.get(start + index) & 0xff);
+		}
+
+		@Override
+		public CharSequence subSequence(int from, int to) {
+			return toString().substring(from, to);
+		}
+
+		@Override
+		public String toString() {
+			byte[] bytes = new byte[end - start];
+			for (int i = 0; i < bytes.length; i++) {
+				bytes[i] = data.get(start + i);
+			}
+			return new String(bytes, StandardCharsets.ISO_8859_1);
+		}
+	}
+}
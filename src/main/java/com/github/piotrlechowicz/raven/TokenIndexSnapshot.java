@@ -0,0 +1,172 @@
+package com.github.piotrlechowicz.raven;
+
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot of {@link TokenIndex} stored next to a text file.
+ * <p>
+ * Snapshot consists of a header and positions of tokens:
+ * </p>
+ * <pre>
+ * int     magic number "RAVN"
+ * int     version
+ * long    size of text file
+ * long    last modification time of text file (milliseconds)
+ * long    CRC32 checksum of text file, 0 if it is not computed ({@link SnapshotMode#SIZE_AND_TIME})
+ * int     number of indexed rows or {@link TokenIndex#ALL}
+ * int     number of indexed tokens in a row or {@link TokenIndex#ALL}
+ * int     number of rows
+ * int     number of tokens
+ * int[]   index of the first token of each row, followed by number of tokens
+ * int[]   position of the first byte of each token
+ * int[]   position after the last byte of each token
+ * </pre>
+ * <p>
+ * Snapshot is valid if the text file did not change (see {@link SnapshotMode}) and at least as many rows and
+ * tokens were indexed as requested. Snapshot is written to a temporary file which is then moved, so a reader
+ * never sees a partially written snapshot.
+ * </p>
+ *
+ * @author plechowicz
+ */
+final class TokenIndexSnapshot {
+
+	private static final Logger log = Logger.getLogger(TokenIndexSnapshot.class);
+
+	static final String SUFFIX = ".raven";
+
+	private static final int MAGIC = 0x5241564E;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 2 * 4 + 3 * 8 + 4 * 4;
+
+	private TokenIndexSnapshot() {
+	}
+
+	static Path getPath(Path source) {
+		return source.resolveSibling(source.getFileName() + SUFFIX);
+	}
+
+	/**
+	 * Reads index of a text file from its snapshot
+	 *
+	 * @param source       path of text file
+	 * @param data         content of text file
+	 * @param lastModified last modification time of text file
+	 * @param charset      charset of text file
+	 * @param maxRows      number of rows to index or {@link TokenIndex#ALL}
+	 * @param maxCols      number of tokens to index in each row or {@link TokenIndex#ALL}
+	 * @param mode         how snapshot is validated
+	 * @return index or {@code null} if snapshot does not exist or is not valid
+	 */
+	static TokenIndex read(Path source, ByteBuffer data, long lastModified, Charset charset, int maxRows, int maxCols,
+						   SnapshotMode mode) {
+		Path path = getPath(source);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+				return null;
+			}
+			ByteBuffer snapshot = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			if (snapshot.getInt() != MAGIC || snapshot.getInt() != VERSION || snapshot.getLong() != data.limit()
+					|| snapshot.getLong() != lastModified) {
+				return null;
+			}
+			long checksum = snapshot.getLong();
+			if (!covers(snapshot.getInt(), maxRows) || !covers(snapshot.getInt(), maxCols)) {
+				return null;
+			}
+			if (mode == SnapshotMode.CHECKSUM && checksum != checksum(data)) {
+				return null;
+			}
+			int nrOfRows = snapshot.getInt();
+			int nrOfTokens = snapshot.getInt();
+			if (nrOfRows < 0 || nrOfTokens < 0 || size != HEADER_SIZE + 4L * (nrOfRows + 1 + 2L * nrOfTokens)) {
+				return null;
+			}
+			IntBuffer ints = snapshot.asIntBuffer();
+			int[] rowStarts = new int[nrOfRows + 1];
+			int[] tokenStarts = new int[nrOfTokens];
+			int[] tokenEnds = new int[nrOfTokens];
+			ints.get(rowStarts).get(tokenStarts).get(tokenEnds);
+			return TokenIndex.of(data, charset, nrOfRows, rowStarts, tokenStarts, tokenEnds);
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (IOException | RuntimeException e) {
+			log.debug("Unable to read snapshot " + path, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Writes snapshot of an index, failure is only logged
+	 *
+	 * @param source       path of text file
+	 * @param index        index of text file
+	 * @param lastModified last modification time of text file
+	 * @param maxRows      number of indexed rows or {@link TokenIndex#ALL}
+	 * @param maxCols      number of indexed tokens in each row or {@link TokenIndex#ALL}
+	 * @param mode         how snapshot is validated, checksum is computed only for {@link SnapshotMode#CHECKSUM}
+	 */
+	static void write(Path source, TokenIndex index, long lastModified, int maxRows, int maxCols, SnapshotMode mode) {
+		Path path = getPath(source);
+		Path temporary = null;
+		try {
+			int nrOfRows = index.getNumberOfRows();
+			int nrOfTokens = index.getNumberOfTokens();
+			long checksum = mode == SnapshotMode.CHECKSUM ? checksum(index.getData()) : 0;
+			ByteBuffer snapshot = ByteBuffer.allocate(Math.toIntExact(HEADER_SIZE + 4L * (nrOfRows + 1 + 2L * nrOfTokens)));
+			snapshot.putInt(MAGIC).putInt(VERSION).putLong(index.getData().limit()).putLong(lastModified)
+					.putLong(checksum).putInt(maxRows).putInt(maxCols).putInt(nrOfRows).putInt(nrOfTokens);
+			IntBuffer ints = snapshot.asIntBuffer();
+			ints.put(index.getRowStarts(), 0, nrOfRows + 1);
+			ints.put(index.getTokenStarts(), 0, nrOfTokens);
+			ints.put(index.getTokenEnds(), 0, nrOfTokens);
+			snapshot.rewind();
+
+			Path directory = path.toAbsolutePath().getParent();
+			temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+			try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+				while (snapshot.hasRemaining()) {
+					channel.write(snapshot);
+				}
+			}
+			try {
+				Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException | RuntimeException e) {
+			log.debug("Unable to write snapshot " + path, e);
+			if (temporary != null) {
+				try {
+					Files.deleteIfExists(temporary);
+				} catch (IOException ignored) {
+					// temporary file is left
+				}
+			}
+		}
+	}
+
+	private static boolean covers(int indexed, int requested) {
+		return indexed == TokenIndex.ALL || (requested != TokenIndex.ALL && indexed >= requested);
+	}
+
+	private static long checksum(ByteBuffer data) {
+		CRC32 crc = new CRC32();
+		crc.update(data.duplicate());
+		return crc.getValue();
+	}
+}
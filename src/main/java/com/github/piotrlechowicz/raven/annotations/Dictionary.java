@@ -0,0 +1,20 @@
+package com.github.piotrlechowicz.raven.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotates that field initialized with many columns and/or rows has few distinct values (names, flags, codes).
+ * Each distinct token is decoded and parsed only once per file, and equal tokens share the same parsed value,
+ * therefore the parser of the field should return immutable values. Values of a dictionary field are
+ * always parsed by the calling thread.
+ *
+ * @author Piotr Lechowicz
+ * @version $Id: $Id
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Dictionary {
+}
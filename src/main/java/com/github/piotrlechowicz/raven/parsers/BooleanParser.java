@@ -8,7 +8,9 @@ package com.github.piotrlechowicz.raven.parsers;
  * @author Piotr Lechowicz
  * @version $Id: $Id
  */
-public class BooleanParser implements Parser<Boolean> {
+public class BooleanParser implements PrimitiveParser<Boolean> {
+
+	private static final String[] TRUE_VALUES = {"True", "TRUE", "true", "t", "yes", "y"};
 
 	/** {@inheritDoc} */
 	@Override
@@ -26,4 +28,33 @@ public class BooleanParser implements Parser<Boolean> {
 		}
 		return Boolean.FALSE;
 	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Class<?> getPrimitiveType() {
+		return boolean.class;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean parseBoolean(CharSequence input, int start, int end) {
+		for (String trueValue : TRUE_VALUES) {
+			if (regionEquals(input, start, end, trueValue)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean regionEquals(CharSequence input, int start, int end, String value) {
+		if (end - start != value.length()) {
+			return false;
+		}
+		for (int i = 0; i < value.length(); i++) {
+			if (input.charAt(start + i) != value.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
 }
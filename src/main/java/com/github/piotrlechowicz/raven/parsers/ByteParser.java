@@ -6,11 +6,27 @@ package com.github.piotrlechowicz.raven.parsers;
  * @author Piotr Lechowicz
  * @version $Id: $Id
  */
-public class ByteParser implements Parser<Byte> {
+public class ByteParser implements PrimitiveParser<Byte> {
 
 	/** {@inheritDoc} */
 	@Override
 	public Byte parse(String input) {
 		return Byte.parseByte(input);
 	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Class<?> getPrimitiveType() {
+		return byte.class;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public byte parseByte(CharSequence input, int start, int end) {
+		int value = Integer.parseInt(input, start, end, 10);
+		if (value < Byte.MIN_VALUE || value > Byte.MAX_VALUE) {
+			throw new NumberFormatException("Value out of range. Value:\"" + input.subSequence(start, end) + "\" Radix:10");
+		}
+		return (byte) value;
+	}
 }
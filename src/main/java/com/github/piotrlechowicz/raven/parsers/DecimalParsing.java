@@ -0,0 +1,284 @@
+package com.github.piotrlechowicz.raven.parsers;
+
+import java.math.BigInteger;
+
+/**
+ * Converts decimal numbers to {@code double} and {@code float} without creating Strings, with the same result
+ * as {@link Double#parseDouble(String)} and {@link Float#parseFloat(String)}.
+ * <p>
+ * Numbers in the form {@code [+-]digits[.digits][(e|E)[+-]digits]} with at most 19 significant digits are
+ * converted with the algorithm of Clinger (when mantissa and power of ten are exactly representable)
+ * or Eisel and Lemire (multiplication by a 128-bit approximation of the power of five). Whenever the result of
+ * Eisel-Lemire algorithm could be ambiguous, and for all other inputs (more digits, hexadecimal numbers, NaN,
+ * Infinity, subnormal numbers, surrounding whitespaces, ...) the methods of the JDK are used.
+ * </p>
+ * <p>
+ * D. Lemire, Number Parsing at a Gigabyte per Second, Software: Practice and Experience 51 (8), 2021.
+ * </p>
+ *
+ * @author Piotr Lechowicz
+ * @version $Id: $Id
+ */
+final class DecimalParsing {
+
+	private static final int MAX_DIGITS = 19;
+
+	private static final int SMALLEST_POWER_OF_FIVE = -342;
+	private static final int LARGEST_POWER_OF_FIVE = 308;
+
+	/**
+	 * 128-bit approximations of powers of five from {@link #SMALLEST_POWER_OF_FIVE}, two longs (high, low) for each power
+	 */
+	private static final long[] POWERS_OF_FIVE = createPowersOfFive();
+
+	private static final double[] DOUBLE_POWERS_OF_TEN = {
+			1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+	private static final float[] FLOAT_POWERS_OF_TEN = {1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f};
+
+	private static final Format DOUBLE = new Format(52, -1023, 0x7FF, -342, 308, -4, 23);
+	private static final Format FLOAT = new Format(23, -127, 0xFF, -65, 38, -17, 10);
+
+	/**
+	 * Value returned by {@link #computeBits} when the fast algorithm cannot decide
+	 */
+	private static final long UNDECIDED = -1;
+
+	private DecimalParsing() {
+	}
+
+	static double parseDouble(CharSequence input, int start, int end) {
+		Decimal decimal = Decimal.parse(input, start, end);
+		if (decimal != null) {
+			if (decimal.mantissa == 0) {
+				return decimal.negative ? -0.0 : 0.0;
+			}
+			if (decimal.mantissa <= 1L << 53 && decimal.exponent >= -22 && decimal.exponent <= 22) {
+				double value = decimal.mantissa;
+				value = decimal.exponent < 0 ? value / DOUBLE_POWERS_OF_TEN[-decimal.exponent]
+						: value * DOUBLE_POWERS_OF_TEN[decimal.exponent];
+				return decimal.negative ? -value : value;
+			}
+			long bits = computeBits(DOUBLE, decimal.exponent, decimal.mantissa);
+			if (bits != UNDECIDED) {
+				return Double.longBitsToDouble(bits | (decimal.negative ? 1L << 63 : 0));
+			}
+		}
+		return Double.parseDouble(input.subSequence(start, end).toString());
+	}
+
+	static float parseFloat(CharSequence input, int start, int end) {
+		Decimal decimal = Decimal.parse(input, start, end);
+		if (decimal != null) {
+			if (decimal.mantissa == 0) {
+				return decimal.negative ? -0.0f : 0.0f;
+			}
+			if (decimal.mantissa <= 1L << 24 && decimal.exponent >= -10 && decimal.exponent <= 10) {
+				float value = decimal.mantissa;
+				value = decimal.exponent < 0 ? value / FLOAT_POWERS_OF_TEN[-decimal.exponent]
+						: value * FLOAT_POWERS_OF_TEN[decimal.exponent];
+				return decimal.negative ? -value : value;
+			}
+			long bits = computeBits(FLOAT, decimal.exponent, decimal.mantissa);
+			if (bits != UNDECIDED) {
+				return Float.intBitsToFloat((int) bits | (decimal.negative ? 1 << 31 : 0));
+			}
+		}
+		return Float.parseFloat(input.subSequence(start, end).toString());
+	}
+
+	/**
+	 * Eisel-Lemire algorithm
+	 *
+	 * @param format   binary format
+	 * @param q        decimal exponent
+	 * @param w        decimal mantissa, not zero
+	 * @return bits of positive number or {@link #UNDECIDED}
+	 */
+	private static long computeBits(Format format, int q, long w) {
+		if (q < format.smallestPowerOfTen || q > format.largestPowerOfTen) {
+			return UNDECIDED;
+		}
+		int lz = Long.numberOfLeadingZeros(w);
+		w <<= lz;
+
+		// product of mantissa and 128-bit power of five, with enough bits to round correctly
+		int index = 2 * (q - SMALLEST_POWER_OF_FIVE);
+		long precisionMask = -1L >>> (format.mantissaBits + 3);
+		long high = multiplyHigh(w, POWERS_OF_FIVE[index]);
+		long low = w * POWERS_OF_FIVE[index];
+		if ((high & precisionMask) == precisionMask) {
+			long secondHigh = multiplyHigh(w, POWERS_OF_FIVE[index + 1]);
+			low += secondHigh;
+			if (Long.compareUnsigned(secondHigh, low) > 0) {
+				high++;
+			}
+		}
+		if (low == -1L && (q < -27 || q > 55)) {
+			// product may be too inaccurate
+			return UNDECIDED;
+		}
+
+		int upperBit = (int) (high >>> 63);
+		int shift = upperBit + 64 - format.mantissaBits - 3;
+		long mantissa = high >>> shift;
+		int power2 = power(q) + upperBit - lz - format.minimumExponent;
+		if (power2 <= 0) {
+			// subnormal numbers are left to the JDK
+			return UNDECIDED;
+		}
+		if (Long.compareUnsigned(low, 1) <= 0 && q >= format.minExponentRoundToEven && q <= format.maxExponentRoundToEven
+				&& (mantissa & 3) == 1 && (mantissa << shift) == high) {
+			// exactly between two numbers, round to even
+			mantissa &= ~1L;
+		}
+		mantissa += mantissa & 1;
+		mantissa >>>= 1;
+		if (mantissa >= 2L << format.mantissaBits) {
+			mantissa = 1L << format.mantissaBits;
+			power2++;
+		}
+		mantissa &= ~(1L << format.mantissaBits);
+		if (power2 >= format.infinitePower) {
+			return UNDECIDED;
+		}
+		return mantissa | (long) power2 << format.mantissaBits;
+	}
+
+	/**
+	 * @return floor(log2(10^q)) + 63
+	 */
+	private static int power(int q) {
+		return (((152170 + 65536) * q) >> 16) + 63;
+	}
+
+	private static long multiplyHigh(long x, long y) {
+		return Math.multiplyHigh(x, y) + ((x >> 63) & y) + ((y >> 63) & x);
+	}
+
+	/**
+	 * Powers of five normalized to 128 bits: truncated for non-negative exponents, and rounded up reciprocals
+	 * for negative ones
+	 */
+	private static long[] createPowersOfFive() {
+		BigInteger two128 = BigInteger.ONE.shiftLeft(128);
+		BigInteger mask = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+		long[] powers = new long[2 * (LARGEST_POWER_OF_FIVE - SMALLEST_POWER_OF_FIVE + 1)];
+		for (int q = SMALLEST_POWER_OF_FIVE; q <= LARGEST_POWER_OF_FIVE; q++) {
+			BigInteger power = BigInteger.valueOf(5).pow(Math.abs(q));
+			BigInteger value;
+			if (q >= 0) {
+				int bits = power.bitLength();
+				value = bits <= 128 ? power.shiftLeft(128 - bits) : power.shiftRight(bits - 128);
+			} else {
+				int z = power.bitLength();
+				int b = q >= -27 ? z + 127 : 2 * z + 2 * 64;
+				value = BigInteger.ONE.shiftLeft(b).divide(power).add(BigInteger.ONE);
+				while (value.compareTo(two128) >= 0) {
+					value = value.shiftRight(1);
+				}
+			}
+			int index = 2 * (q - SMALLEST_POWER_OF_FIVE);
+			powers[index] = value.shiftRight(64).longValue();
+			powers[index + 1] = value.and(mask).longValue();
+		}
+		return powers;
+	}
+
+	private static final class Format {
+
+		private final int mantissaBits;
+		private final int minimumExponent;
+		private final int infinitePower;
+		private final int smallestPowerOfTen;
+		private final int largestPowerOfTen;
+		private final int minExponentRoundToEven;
+		private final int maxExponentRoundToEven;
+
+		private Format(int mantissaBits, int minimumExponent, int infinitePower, int smallestPowerOfTen,
+					   int largestPowerOfTen, int minExponentRoundToEven, int maxExponentRoundToEven) {
+			this.mantissaBits = mantissaBits;
+			this.minimumExponent = minimumExponent;
+			this.infinitePower = infinitePower;
+			this.smallestPowerOfTen = smallestPowerOfTen;
+			this.largestPowerOfTen = largestPowerOfTen;
+			this.minExponentRoundToEven = minExponentRoundToEven;
+			this.maxExponentRoundToEven = maxExponentRoundToEven;
+		}
+	}
+
+	/**
+	 * Decimal number: sign, mantissa of at most 19 digits and exponent
+	 */
+	private static final class Decimal {
+
+		private static final int MAX_EXPONENT = 100_000;
+
+		private boolean negative;
+		private long mantissa;
+		private int exponent;
+
+		/**
+		 * @return decimal or {@code null} if input is not a plain decimal number with at most 19 significant digits
+		 */
+		private static Decimal parse(CharSequence input, int start, int end) {
+			Decimal decimal = new Decimal();
+			int i = start;
+			if (i < end && (input.charAt(i) == '-' || input.charAt(i) == '+')) {
+				decimal.negative = input.charAt(i) == '-';
+				i++;
+			}
+			int digits = 0;
+			int significantDigits = 0;
+			long mantissa = 0;
+			for (; i < end && isDigit(input.charAt(i)); i++, digits++) {
+				if (mantissa != 0 || input.charAt(i) != '0') {
+					mantissa = 10 * mantissa + (input.charAt(i) - '0');
+					significantDigits++;
+				}
+			}
+			int exponent = 0;
+			if (i < end && input.charAt(i) == '.') {
+				i++;
+				for (; i < end && isDigit(input.charAt(i)); i++, digits++) {
+					if (mantissa != 0 || input.charAt(i) != '0') {
+						mantissa = 10 * mantissa + (input.charAt(i) - '0');
+						significantDigits++;
+					}
+					exponent--;
+				}
+			}
+			if (digits == 0 || significantDigits > MAX_DIGITS) {
+				return null;
+			}
+			if (i < end && (input.charAt(i) == 'e' || input.charAt(i) == 'E')) {
+				i++;
+				boolean negativeExponent = false;
+				if (i < end && (input.charAt(i) == '-' || input.charAt(i) == '+')) {
+					negativeExponent = input.charAt(i) == '-';
+					i++;
+				}
+				if (i == end || !isDigit(input.charAt(i))) {
+					return null;
+				}
+				int explicit = 0;
+				for (; i < end && isDigit(input.charAt(i)); i++) {
+					if (explicit < MAX_EXPONENT) {
+						explicit = 10 * explicit + (input.charAt(i) - '0');
+					}
+				}
+				exponent += negativeExponent ? -explicit : explicit;
+			}
+			if (i != end || significantDigits == MAX_DIGITS && Long.compareUnsigned(mantissa, Long.MIN_VALUE) >= 0) {
+				return null;
+			}
+			decimal.mantissa = mantissa;
+			decimal.exponent = exponent;
+			return decimal;
+		}
+
+		private static boolean isDigit(char c) {
+			return c >= '0' && c <= '9';
+		}
+	}
+}
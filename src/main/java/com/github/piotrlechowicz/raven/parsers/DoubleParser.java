@@ -6,11 +6,23 @@ package com.github.piotrlechowicz.raven.parsers;
  * @author Piotr Lechowicz
  * @version $Id: $Id
  */
-public class DoubleParser implements Parser<Double> {
+public class DoubleParser implements PrimitiveParser<Double> {
 
 	/** {@inheritDoc} */
 	@Override
 	public Double parse(String input) {
-		return Double.parseDouble(input);
+		return DecimalParsing.parseDouble(input, 0, input.length());
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Class<?> getPrimitiveType() {
+		return double.class;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public double parseDouble(CharSequence input, int start, int end) {
+		return DecimalParsing.parseDouble(input, start, end);
 	}
 }
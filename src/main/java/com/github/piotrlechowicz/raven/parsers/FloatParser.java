@@ -6,11 +6,23 @@ package com.github.piotrlechowicz.raven.parsers;
  * @author Piotr Lechowicz
  * @version $Id: $Id
  */
-public class FloatParser implements Parser<Float> {
+public class FloatParser implements PrimitiveParser<Float> {
 
 	/** {@inheritDoc} */
 	@Override
 	public Float parse(String input) {
-		return Float.parseFloat(input);
+		return DecimalParsing.parseFloat(input, 0, input.length());
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Class<?> getPrimitiveType() {
+		return float.class;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public float parseFloat(CharSequence input, int start, int end) {
+		return DecimalParsing.parseFloat(input, start, end);
 	}
 }
@@ -6,11 +6,23 @@ package com.github.piotrlechowicz.raven.parsers;
  * @author Piotr Lechowicz
  * @version $Id: $Id
  */
-public class IntegerParser implements Parser<Integer> {
+public class IntegerParser implements PrimitiveParser<Integer> {
 
 	/** {@inheritDoc} */
 	@Override
 	public Integer parse(String input) {
 		return input.isEmpty() ? null : Integer.parseInt(input);
 	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Class<?> getPrimitiveType() {
+		return int.class;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int parseInt(CharSequence input, int start, int end) {
+		return Integer.parseInt(input, start, end, 10);
+	}
 }
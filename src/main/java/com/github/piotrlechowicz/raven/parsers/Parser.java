@@ -2,6 +2,10 @@ package com.github.piotrlechowicz.raven.parsers;
 
 /**
  * Defines how field should be converted from String to type T
+ * <p>
+ * One instance of a parser is shared by all fields and readers, so implementations should be stateless
+ * and have a public no-argument constructor.
+ * </p>
  *
  * @param <T> type of field
  * @author Piotr Lechowicz
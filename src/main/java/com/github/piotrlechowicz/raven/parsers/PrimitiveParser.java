@@ -0,0 +1,97 @@
+package com.github.piotrlechowicz.raven.parsers;
+
+/**
+ * Parser which can convert a range of characters directly to a primitive value.
+ * <p>
+ * When a field has the same primitive type as {@link #getPrimitiveType()}, readers call the specialized method
+ * (e.g. {@link #parseInt(CharSequence, int, int)} for {@code int}) with a range of characters of a value,
+ * instead of creating a String and boxing the result of {@link #parse(String)}.
+ * Default implementations of the specialized methods delegate to {@link #parse(String)}.
+ * </p>
+ *
+ * @param <T> boxed type of parsed value
+ * @author plechowicz
+ */
+public interface PrimitiveParser<T> extends Parser<T> {
+
+	/**
+	 * @return primitive type returned by the specialized method of the parser, e.g. {@code int.class}
+	 */
+	Class<?> getPrimitiveType();
+
+	/**
+	 * Converts range of characters to int
+	 *
+	 * @param input characters
+	 * @param start index of the first character
+	 * @param end   index after the last character
+	 * @return converted value
+	 */
+	default int parseInt(CharSequence input, int start, int end) {
+		return ((Number) parseRange(input, start, end)).intValue();
+	}
+
+	/**
+	 * Converts range of characters to long
+	 *
+	 * @param input characters
+	 * @param start index of the first character
+	 * @param end   index after the last character
+	 * @return converted value
+	 */
+	default long parseLong(CharSequence input, int start, int end) {
+		return ((Number) parseRange(input, start, end)).longValue();
+	}
+
+	/**
+	 * Converts range of characters to float
+	 *
+	 * @param input characters
+	 * @param start index of the first character
+	 * @param end   index after the last character
+	 * @return converted value
+	 */
+	default float parseFloat(CharSequence input, int start, int end) {
+		return ((Number) parseRange(input, start, end)).floatValue();
+	}
+
+	/**
+	 * Converts range of characters to double
+	 *
+	 * @param input characters
+	 * @param start index of the first character
+	 * @param end   index after the last character
+	 * @return converted value
+	 */
+	default double parseDouble(CharSequence input, int start, int end) {
+		return ((Number) parseRange(input, start, end)).doubleValue();
+	}
+
+	/**
+	 * Converts range of characters to byte
+	 *
+	 * @param input characters
+	 * @param start index of the first character
+	 * @param end   index after the last character
+	 * @return converted value
+	 */
+	default byte parseByte(CharSequence input, int start, int end) {
+		return ((Number) parseRange(input, start, end)).byteValue();
+	}
+
+	/**
+	 * Converts range of characters to boolean
+	 *
+	 * @param input characters
+	 * @param start index of the first character
+	 * @param end   index after the last character
+	 * @return converted value
+	 */
+	default boolean parseBoolean(CharSequence input, int start, int end) {
+		return (Boolean) parseRange(input, start, end);
+	}
+
+	private T parseRange(CharSequence input, int start, int end) {
+		return parse(input.subSequence(start, end).toString());
+	}
+}
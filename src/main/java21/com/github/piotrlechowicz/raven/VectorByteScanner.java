@@ -0,0 +1,57 @@
+package com.github.piotrlechowicz.raven;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Classifies bytes with the Vector API, comparing as many bytes at a time as the preferred vector of the platform
+ * holds (e.g. 32 with AVX2, 64 with AVX-512).
+ * <p>
+ * Results of comparisons are packed into masks with {@link VectorMask#toLong()}. Line terminators and control
+ * characters are rare, their masks are packed only if the vector contains any of them.
+ * </p>
+ *
+ * @author plechowicz
+ */
+final class VectorByteScanner extends ByteScanner {
+
+	private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED.length() <= WORD_SIZE
+			? ByteVector.SPECIES_PREFERRED : ByteVector.SPECIES_512;
+
+	private static final int LANES = SPECIES.length();
+
+	@Override
+	void classify(byte[] bytes, int words, long[] spaces, long[] cr, long[] lf, long[] controls) {
+		for (int word = 0; word < words; word++) {
+			long spaceMask = 0;
+			long crMask = 0;
+			long lfMask = 0;
+			long controlMask = 0;
+			int offset = word * WORD_SIZE;
+			for (int i = 0; i < WORD_SIZE; i += LANES) {
+				ByteVector vector = ByteVector.fromArray(SPECIES, bytes, offset + i);
+				VectorMask<Byte> low = vector.compare(VectorOperators.UNSIGNED_LE, (byte) ' ');
+				VectorMask<Byte> space = vector.eq((byte) ' ').or(vector.eq((byte) '\t')).or(vector.eq((byte) 0x0B))
+						.or(vector.eq((byte) '\f'));
+				spaceMask |= space.toLong() << i;
+				VectorMask<Byte> other = low.andNot(space);
+				if (other.anyTrue()) {
+					VectorMask<Byte> crLanes = vector.eq((byte) '\r');
+					VectorMask<Byte> lfLanes = vector.eq((byte) '\n');
+					crMask |= crLanes.toLong() << i;
+					lfMask |= lfLanes.toLong() << i;
+					VectorMask<Byte> control = other.andNot(crLanes).andNot(lfLanes);
+					if (control.anyTrue()) {
+						controlMask |= control.toLong() << i;
+					}
+				}
+			}
+			spaces[word] = spaceMask;
+			cr[word] = crMask;
+			lf[word] = lfMask;
+			controls[word] = controlMask;
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package com.github.piotrlechowicz.raven;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author plechowicz
+ */
+public class ChannelOutputTest {
+
+	private File file;
+
+	@Before
+	public void setUp() throws Exception {
+		file = File.createTempFile("raven", ".txt");
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Test
+	public void charactersAreEncodedInDefaultCharset() throws IOException {
+		String text = createText(1000);
+		try (ChannelOutput output = ChannelOutput.append(file.toPath())) {
+			output.write(text);
+			output.write(new StringBuilder(text));
+		}
+		assertTrue(Arrays.equals((text + text).getBytes(Charset.defaultCharset()), Files.readAllBytes(file.toPath())));
+	}
+
+	@Test
+	public void shortOutputIsEncodedLikeLongOne() throws IOException {
+		String line = "\u00e9t\u00e9 \ud83d\ude00 value;\n";
+		for (int length : new int[]{0, line.length(), 2 * line.length()}) {
+			Files.write(file.toPath(), new byte[0]);
+			try (ChannelOutput output = ChannelOutput.append(file.toPath(), length)) {
+				output.write(line);
+				output.write(line);
+			}
+			assertTrue(Arrays.equals((line + line).getBytes(Charset.defaultCharset()), Files.readAllBytes(file.toPath())));
+		}
+	}
+
+	@Test
+	public void outputsOfOneFileAppendToIt() throws IOException {
+		Path path = file.toPath();
+		Files.write(path, "prefix\n".getBytes(Charset.defaultCharset()));
+		try (ChannelOutput first = ChannelOutput.append(path); ChannelOutput second = ChannelOutput.append(path)) {
+			first.write("a\n");
+			first.flush();
+			second.write("b\n");
+			second.flush();
+			first.write("c\n");
+		}
+		assertEquals(Arrays.asList("prefix", "a", "b", "c"), Files.readAllLines(path, Charset.defaultCharset()));
+	}
+
+	private static String createText(int lines) {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < lines; i++) {
+			builder.append(i).append(';').append(i % 3 == 0 ? "\u00e9t\u00e9 \ud83d\ude00" : "value").append(";\n");
+		}
+		return builder.toString();
+	}
+}
@@ -1,23 +1,48 @@
 package com.github.piotrlechowicz.raven;
 
+import com.github.piotrlechowicz.raven.annotations.Dictionary;
 import com.github.piotrlechowicz.raven.annotations.ManyCols;
 import com.github.piotrlechowicz.raven.annotations.ManyRows;
 import com.github.piotrlechowicz.raven.annotations.Parsable;
+import com.github.piotrlechowicz.raven.parsers.BooleanParser;
+import com.github.piotrlechowicz.raven.parsers.ByteParser;
 import com.github.piotrlechowicz.raven.parsers.DoubleParser;
+import com.github.piotrlechowicz.raven.parsers.DummyParser;
+import com.github.piotrlechowicz.raven.parsers.FloatParser;
 import com.github.piotrlechowicz.raven.parsers.IntegerParser;
+import com.github.piotrlechowicz.raven.parsers.Parser;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
-import org.junit.runner.RunWith;
-import org.powermock.api.mockito.PowerMockito;
-import org.powermock.core.classloader.annotations.PrepareForTest;
-import org.powermock.modules.junit4.PowerMockRunner;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.Assert.assertEquals;
-import static org.mockito.Matchers.any;
-import static org.powermock.api.mockito.PowerMockito.doReturn;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * <p>FlatFileReaderTest class.</p>
@@ -26,11 +51,10 @@ import static org.powermock.api.mockito.PowerMockito.doReturn;
  * @version $Id: $Id
  * @since 1.0
  */
-@RunWith(PowerMockRunner.class)
-@PrepareForTest(FlatFileReader.class)
 public class FlatFileReaderTest {
 
-	private final FlatFileReader<ClassToParse> flatFileReader = PowerMockito.spy(new FlatFileReader<>(ClassToParse.class));
+	private final FlatFileReader<ClassToParse> flatFileReader = new FlatFileReader<>(ClassToParse.class);
+	private File file;
 	private ClassToParse parsedClass;
 
 	/**
@@ -40,8 +64,17 @@ public class FlatFileReaderTest {
 	 */
 	@Before
 	public void setUp() throws Exception {
-		doReturn(exampleFileContent).when(flatFileReader, "getFileContent", any(String.class));
-		parsedClass = flatFileReader.create("");
+		file = File.createTempFile("raven", ".txt");
+		FileUtils.writeLines(file, exampleFileContent);
+		parsedClass = flatFileReader.create(file.getPath());
+	}
+
+	/**
+	 * <p>tearDown.</p>
+	 */
+	@After
+	public void tearDown() {
+		file.delete();
 	}
 
 	/**
@@ -132,6 +165,497 @@ public class FlatFileReaderTest {
 		}
 	}
 
+	/**
+	 * <p>testCompiledEngine.</p>
+	 *
+	 * @throws java.lang.Exception if any.
+	 */
+	@Test
+	public void testCompiledEngine() throws Exception {
+		FlatFileReader<ClassToParse> compiledReader = new FlatFileReader<>(ClassToParse.class, ReaderEngine.COMPILED);
+		ClassToParse compiled = compiledReader.create(file.getPath());
+
+		assertEquals(parsedClass.singleValue, compiled.singleValue);
+		assertEquals(parsedClass.oneRow, compiled.oneRow);
+		assertEquals(parsedClass.oneRowTillEnd, compiled.oneRowTillEnd);
+		assertEquals(parsedClass.oneCol, compiled.oneCol);
+		assertEquals(parsedClass.oneColTillEnd, compiled.oneColTillEnd);
+		assertEquals(parsedClass.matrix, compiled.matrix);
+		assertEquals(parsedClass.matrixTillEnd, compiled.matrixTillEnd);
+	}
+
+	/**
+	 * <p>testHeaderOnly.</p>
+	 *
+	 * @throws java.lang.Exception if any.
+	 */
+	@Test
+	public void testHeaderOnly() throws Exception {
+		FlatFileReader<HeaderToParse> headerReader = new FlatFileReader<>(HeaderToParse.class);
+		HeaderToParse header = headerReader.create(file.getPath());
+
+		assertEquals(2, header.singleValue);
+		assertEquals(Arrays.asList(1, 2, 2), header.oneRow);
+		assertEquals(Arrays.asList("4", "1", "4"), header.oneCol);
+
+		// rows after the last annotated row are neither tokenized nor decoded
+		byte[] tail = new byte[8 << 20];
+		Arrays.fill(tail, (byte) 0xFF);
+		for (int i = 0; i < tail.length; i += 64) {
+			tail[i] = '\n';
+		}
+		Files.write(file.toPath(), tail, StandardOpenOption.APPEND);
+		Matrix matrix = headerReader.readMatrix(file.getPath());
+		assertEquals(4, matrix.getNumberOfRows());
+		assertEquals(4, matrix.getIndex().getNumberOfRows());
+		header = headerReader.create(file.getPath());
+		assertEquals(Arrays.asList("4", "1", "4"), header.oneCol);
+	}
+
+	/**
+	 * <p>testPrimitives.</p>
+	 *
+	 * @throws java.lang.Exception if any.
+	 */
+	@Test
+	public void testPrimitives() throws Exception {
+		PrimitivesToParse primitives = new FlatFileReader<>(PrimitivesToParse.class).create(file.getPath());
+
+		assertEquals(1.2, primitives.doubleValue, 0.0);
+		assertEquals(1.1f, primitives.floatValue, 0.0f);
+		assertEquals(8, primitives.byteValue);
+		assertEquals(false, primitives.booleanValue);
+	}
+
+	/**
+	 * <p>testPrimitiveArrays.</p>
+	 *
+	 * @throws java.lang.Exception if any.
+	 */
+	@Test
+	public void testPrimitiveArrays() throws Exception {
+		for (ReaderEngine engine : ReaderEngine.values()) {
+			ArraysToParse arrays = new FlatFileReader<>(ArraysToParse.class, engine).create(file.getPath());
+
+			assertTrue(Arrays.equals(new int[]{2, 3, 4}, arrays.row));
+			assertTrue(Arrays.equals(new double[]{1, 4, 6}, arrays.column));
+			assertTrue(Arrays.equals(new double[]{1.1, 1.2}, arrays.tillEnd));
+			assertEquals(2, arrays.matrix.length);
+			assertTrue(Arrays.equals(new long[]{3, 2, 4, 3, 2}, arrays.matrix[0]));
+			assertTrue(Arrays.equals(new long[]{5, 4, 3, 2, 1}, arrays.matrix[1]));
+			assertTrue(Arrays.equals(new int[]{0, 1, 1, 3, 2, 4}, arrays.rowMajor));
+			assertNull(arrays.outOfRange);
+		}
+	}
+
+	/**
+	 * <p>testCreateAll.</p>
+	 *
+	 * @throws java.lang.Exception if any.
+	 */
+	@Test
+	public void testCreateAll() throws Exception {
+		Path missing = file.toPath().resolveSibling(file.getName() + ".missing");
+		List<Path> paths = Arrays.asList(file.toPath(), missing, file.toPath());
+
+		List<ReadResult<ClassToParse>> results = flatFileReader.createAll(paths);
+
+		assertEquals(3, results.size());
+		assertTrue(results.get(0).isSuccess());
+		assertEquals(2, results.get(0).getValue().singleValue);
+		assertEquals(missing, results.get(1).getPath());
+		assertTrue(results.get(1).getException() instanceof IOException);
+		assertEquals(file.toPath(), results.get(2).getPath());
+
+		results = flatFileReader.createAll(file.toPath().getParent(), file.getName());
+		assertEquals(1, results.size());
+		assertEquals(parsedClass.singleValue, results.get(0).getValue().singleValue);
+	}
+
+	/**
+	 * <p>testCreateAsync.</p>
+	 *
+	 * @throws java.lang.Exception if any.
+	 */
+	@Test
+	public void testCreateAsync() throws Exception {
+		ClassToParse created = flatFileReader.createAsync(file.toPath()).get();
+		assertEquals(parsedClass.singleValue, created.singleValue);
+		assertEquals(parsedClass.matrix, created.matrix);
+
+		ClassToParse instance = new ClassToParse();
+		assertTrue(instance == flatFileReader.initializeAsync(instance, file.toPath()).get());
+		assertEquals(parsedClass.singleValue, instance.singleValue);
+
+		try {
+			flatFileReader.createAsync(file.toPath().resolveSibling(file.getName() + ".missing")).get();
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IOException);
+		}
+	}
+
+	/**
+	 * <p>testCache.</p>
+	 *
+	 * @throws java.lang.Exception if any.
+	 */
+	@Test
+	public void testCache() throws Exception {
+		ReaderCache cache = new ReaderCache(1, ReaderCache.UNLIMITED);
+
+		ClassToParse shared = cache.getShared(flatFileReader, file.getPath());
+		assertTrue(shared == cache.getShared(flatFileReader, file.getPath()));
+		ClassToParse copy = cache.getCopy(flatFileReader, file.getPath());
+		assertTrue(shared != copy && shared.matrix != copy.matrix);
+		assertEquals(shared.matrix, copy.matrix);
+		assertEquals(shared.singleValue, copy.singleValue);
+		assertEquals(1, cache.getMissCount());
+		assertEquals(2, cache.getHitCount());
+
+		cache.getShared(new FlatFileReader<>(PrimitivesToParse.class), file.getPath());
+		assertEquals(1, cache.size());
+		assertEquals(1, cache.getEvictionCount());
+		assertEquals(file.length(), cache.getEstimatedBytes());
+	}
+
+	/**
+	 * <p>testCopyOfLists.</p>
+	 *
+	 * @throws java.lang.Exception if any.
+	 */
+	@Test
+	public void testCopyOfLists() throws Exception {
+		ReaderCache cache = new ReaderCache(2, ReaderCache.UNLIMITED);
+
+		FlatFileReader<ListsToParse> reader = new FlatFileReader<>(ListsToParse.class);
+		ListsToParse shared = cache.getShared(reader, file.getPath());
+		ListsToParse copy = cache.getCopy(reader, file.getPath());
+		assertEquals(Arrays.asList("1", ".", "1"), copy.characters);
+		assertTrue(copy.characters instanceof LinkedList && copy.characters == shared.characters);
+		assertTrue(copy.values != shared.values && copy.values.equals(shared.values));
+
+		FlatFileReader<ArraysToParse> arraysReader = new FlatFileReader<>(ArraysToParse.class);
+		ArraysToParse sharedArrays = cache.getShared(arraysReader, file.getPath());
+		ArraysToParse copiedArrays = cache.getCopy(arraysReader, file.getPath());
+		assertTrue(copiedArrays.matrix != sharedArrays.matrix && copiedArrays.matrix[0] != sharedArrays.matrix[0]);
+		assertTrue(Arrays.deepEquals(sharedArrays.matrix, copiedArrays.matrix));
+	}
+
+	/**
+	 * <p>testSnapshot.</p>
+	 *
+	 * @throws java.lang.Exception if any.
+	 */
+	@Test
+	public void testSnapshot() throws Exception {
+		Path snapshot = TokenIndexSnapshot.getPath(file.toPath());
+		try {
+			FlatFileReader<ClassToParse> reader = new FlatFileReader<>(ClassToParse.class, ReaderEngine.REFLECTIVE,
+					ParallelBatch.defaultExecutor(), SnapshotMode.CHECKSUM);
+			assertEquals(parsedClass.matrix, reader.create(file.getPath()).matrix);
+			assertTrue(Files.exists(snapshot));
+
+			ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+			TokenIndex index = TokenIndexSnapshot.read(file.toPath(), data, file.lastModified(),
+					StandardCharsets.UTF_8, TokenIndex.ALL, TokenIndex.ALL, SnapshotMode.CHECKSUM);
+			assertEquals(6, index.getNumberOfRows());
+			assertEquals("4", index.getToken(3, 0));
+			assertEquals(parsedClass.matrix, reader.create(file.getPath()).matrix);
+
+			data.put(0, (byte) '2');
+			assertNull(TokenIndexSnapshot.read(file.toPath(), data, file.lastModified(),
+					StandardCharsets.UTF_8, TokenIndex.ALL, TokenIndex.ALL, SnapshotMode.CHECKSUM));
+		} finally {
+			Files.deleteIfExists(snapshot);
+		}
+	}
+
+	/**
+	 * <p>testGzip.</p>
+	 *
+	 * @throws java.lang.Exception if any.
+	 */
+	@Test
+	public void testGzip() throws Exception {
+		File compressed = new File(file.getPath() + ".gz");
+		try {
+			Files.write(compressed.toPath(), gzip(Files.readAllBytes(file.toPath())));
+			assertEquals(parsedClass.matrix, flatFileReader.create(compressed.getPath()).matrix);
+			assertEquals(parsedClass.matrix, flatFileReader.createAsync(compressed.toPath()).get().matrix);
+		} finally {
+			compressed.delete();
+		}
+
+		Random random = new Random(7);
+		StringBuilder text = new StringBuilder();
+		while (text.length() < 4 << 20) {
+			text.append(random.nextInt()).append(random.nextBoolean() ? ' ' : '\n');
+		}
+		byte[] bytes = text.toString().getBytes(StandardCharsets.US_ASCII);
+		ByteArrayOutputStream members = new ByteArrayOutputStream();
+		for (int i = 0; i < 4; i++) {
+			members.write(gzip(Arrays.copyOfRange(bytes, i * bytes.length / 4, (i + 1) * bytes.length / 4)));
+		}
+		ByteBuffer decompressed = Compression.decompress(file.toPath(), ByteBuffer.wrap(members.toByteArray()),
+				ParallelBatch.defaultExecutor());
+		assertTrue(decompressed.equals(ByteBuffer.wrap(bytes)));
+
+		// stored member which contains a gzip header is a false member candidate
+		ByteArrayOutputStream stored = new ByteArrayOutputStream();
+		stored.write(bytes, 0, bytes.length / 2);
+		stored.write(gzip(new byte[0]), 0, 10);
+		stored.write(bytes, bytes.length / 2, bytes.length / 2);
+		byte[] storedBytes = stored.toByteArray();
+		members = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzip = new GZIPOutputStream(members) {{
+			def.setLevel(Deflater.NO_COMPRESSION);
+		}}) {
+			gzip.write(storedBytes);
+		}
+		members.write(gzip(bytes));
+		ByteBuffer expected = ByteBuffer.allocate(storedBytes.length + bytes.length).put(storedBytes).put(bytes);
+		expected.flip();
+		decompressed = Compression.decompress(file.toPath(), ByteBuffer.wrap(members.toByteArray()),
+				ParallelBatch.defaultExecutor());
+		assertTrue(decompressed.equals(expected));
+	}
+
+	/**
+	 * <p>testGzipLargerThanMaxSize.</p>
+	 *
+	 * @throws java.lang.Exception if any.
+	 */
+	@Test
+	public void testGzipLargerThanMaxSize() throws Exception {
+		File compressed = new File(file.getPath() + ".gz");
+		int maxSize = Compression.maxSize;
+		try {
+			byte[] bytes = Files.readAllBytes(file.toPath());
+			Files.write(compressed.toPath(), gzip(bytes));
+			Compression.maxSize = bytes.length - 1;
+			assertNull(Compression.decompress(compressed.toPath(), ByteBuffer.wrap(Files.readAllBytes(compressed.toPath())),
+					ParallelBatch.defaultExecutor()));
+			assertEquals(parsedClass.matrix, flatFileReader.create(compressed.getPath()).matrix);
+			assertEquals(parsedClass.matrix, flatFileReader.createAsync(compressed.toPath()).get().matrix);
+		} finally {
+			Compression.maxSize = maxSize;
+			compressed.delete();
+		}
+	}
+
+	private static byte[] gzip(byte[] bytes) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+			gzip.write(bytes);
+		}
+		return output.toByteArray();
+	}
+
+	/**
+	 * <p>testStream.</p>
+	 *
+	 * @throws java.lang.Exception if any.
+	 */
+	@Test
+	public void testStream() throws Exception {
+		List<RecordToParse> records;
+		try (Stream<RecordToParse> stream = new FlatFileReader<>(RecordToParse.class).stream(file.getPath())) {
+			records = stream.collect(Collectors.toList());
+		}
+
+		assertEquals(3, records.size());
+		assertEquals("1.2", records.get(0).first);
+		assertEquals(Integer.valueOf(2), records.get(0).second);
+		assertEquals("0", records.get(1).first);
+		assertEquals(Integer.valueOf(3), records.get(1).second);
+		assertEquals("8", records.get(2).first);
+		assertEquals(Integer.valueOf(5), records.get(2).second);
+	}
+
+	/**
+	 * <p>testDictionary.</p>
+	 *
+	 * @throws java.lang.Exception if any.
+	 */
+	@Test
+	public void testDictionary() throws Exception {
+		File labels = File.createTempFile("raven", ".txt");
+		try {
+			List<String> lines = new ArrayList<>();
+			for (int i = 0; i < 300; i++) {
+				lines.add("node" + i % 3 + " " + (i % 2 == 0) + " x" + i % 5);
+			}
+			FileUtils.writeLines(labels, lines);
+			for (ReaderEngine engine : ReaderEngine.values()) {
+				DictionaryToParse parsed = new FlatFileReader<>(DictionaryToParse.class, engine).create(labels.getPath());
+				assertEquals(300, parsed.names.size());
+				assertEquals(200, parsed.codes.size());
+				for (int i = 0; i < 300; i++) {
+					assertEquals("node" + i % 3, parsed.names.get(i));
+					assertSame(parsed.names.get(i % 3), parsed.names.get(i));
+					assertEquals(i % 2 == 0, parsed.flags.get(i));
+				}
+				for (int i = 0; i < 200; i++) {
+					assertEquals(Arrays.asList(String.valueOf(i % 2 == 0), "x" + i % 5), parsed.codes.get(i));
+					assertSame(parsed.codes.get(i % 2).get(0), parsed.codes.get(i).get(0));
+					assertSame(parsed.codes.get(i % 5).get(1), parsed.codes.get(i).get(1));
+				}
+			}
+		} finally {
+			labels.delete();
+		}
+
+		Matrix matrix = new Matrix(Arrays.asList(Arrays.asList("a", "b", new String("a")), Arrays.asList("c")));
+		TokenDictionary dictionary = new TokenDictionary(new DummyParser(), matrix);
+		List<Object> values = dictionary.convertList(matrix.getRow(0));
+		assertEquals(Arrays.asList("a", "b", "a"), values);
+		assertSame(values.get(0), values.get(2));
+		assertEquals(2, dictionary.size());
+	}
+
+	/**
+	 * <p>testRaggedMatrix.</p>
+	 */
+	@Test
+	public void testRaggedMatrix() {
+		Matrix matrix = new Matrix(Arrays.asList(Arrays.asList("1", "2", "3"), Arrays.asList("4"),
+				Arrays.asList("5", "6", "7"), Arrays.asList("8", "9")));
+
+		assertEquals(Arrays.asList("1", "4", "5", "8"), matrix.getColumn(0, 0));
+		assertEquals(Arrays.asList("6", "9"), matrix.getColumn(2, 1));
+		assertNull(matrix.getColumn(0, 1));
+		assertNull(matrix.getColumn(0, 3, 1));
+		assertEquals(Arrays.asList(Arrays.asList("6", "7"), Arrays.asList("9")), matrix.getRowsInRangeAndCols(2, 4, 1));
+		assertEquals(Arrays.asList(Arrays.asList("5", "6"), Arrays.asList("8", "9")), matrix.getRowsAndColsInRange(2, 0, 2));
+		assertNull(matrix.getRowsAndColsInRange(0, 0, 2));
+		assertEquals(Arrays.asList(Arrays.asList("2", "3"), Arrays.asList(), Arrays.asList("6", "7"), Arrays.asList("9")),
+				matrix.getRowsAndCols(0, 1));
+		assertEquals(Arrays.asList(Arrays.asList("3"), Arrays.asList(), Arrays.asList("7")),
+				matrix.getRowsInRangeAndCols(0, 3, 2));
+	}
+
+	/**
+	 * <p>testMatrixTillEndOfShortRows.</p>
+	 *
+	 * @throws java.lang.Exception if any.
+	 */
+	@Test
+	public void testMatrixTillEndOfShortRows() throws Exception {
+		FlatFileReader<RaggedToParse> raggedReader = new FlatFileReader<>(RaggedToParse.class);
+
+		FileUtils.writeStringToFile(file, "a b c\nd e\n\n", StandardCharsets.UTF_8);
+		assertEquals(Arrays.asList(Arrays.asList("b", "c"), Arrays.asList("e"), Arrays.asList()),
+				raggedReader.create(file.getPath()).values);
+
+		FileUtils.writeStringToFile(file, "a b c\nd\n", StandardCharsets.UTF_8);
+		assertEquals(Arrays.asList(Arrays.asList("b", "c"), Arrays.asList()), raggedReader.create(file.getPath()).values);
+	}
+
+	/**
+	 * <p>testParallelConversionFailure.</p>
+	 */
+	@Test
+	public void testParallelConversionFailure() {
+		List<String> values = new ArrayList<>();
+		for (int i = 0; i < 200_000; i++) {
+			values.add(i == 150_000 ? "second" : i == 90_000 ? "first" : Integer.toString(i));
+		}
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (int run = 0; run < 10; run++) {
+				try {
+					FlatFileReader.convertList(new IntegerParser(), values, pool);
+					fail();
+				} catch (NumberFormatException e) {
+					assertTrue(e.getMessage().contains("first"));
+				}
+			}
+			List<List<String>> rows = new ArrayList<>();
+			for (int i = 0; i < 4000; i++) {
+				rows.add(values.subList(i * 50, i * 50 + 50));
+			}
+			try {
+				FlatFileReader.convertMatrix(new IntegerParser(), rows, pool);
+				fail();
+			} catch (NumberFormatException e) {
+				assertTrue(e.getMessage().contains("first"));
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * <p>testTokenize.</p>
+	 */
+	@Test
+	public void testTokenize() {
+		String[] lines = {"", "  ", "1", " 1 2\t3 ", "1 \u000B\f 2\r\n", "\u0001a\u0001 b", "a  b   c"};
+		for (String line : lines) {
+			assertEquals(Arrays.asList(line.trim().split("\\s+")), FlatFileReader.tokenize(line, Integer.MAX_VALUE));
+		}
+		assertEquals(Arrays.asList("1", "2"), FlatFileReader.tokenize(" 1 2 3 4", 2));
+	}
+
+	/**
+	 * <p>testTokenIndex.</p>
+	 *
+	 * @throws java.lang.Exception if any.
+	 */
+	@Test
+	public void testTokenIndex() throws Exception {
+		String content = "a b\r\n\r\n  \u00e9t\u00e9 \u0001x\u0001\rc\td  \n\n\u000Be f";
+		List<String> lines = IOUtils.readLines(new StringReader(content));
+		ByteBuffer data = ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+		assertTokens(lines, TokenIndex.of(data, StandardCharsets.UTF_8, TokenIndex.ALL, TokenIndex.ALL));
+		for (int chunkSize = 1; chunkSize < 8; chunkSize++) {
+			assertTokens(lines, TokenIndex.of(data, StandardCharsets.UTF_8, TokenIndex.ALL, TokenIndex.ALL,
+					ParallelBatch.defaultExecutor(), chunkSize));
+		}
+		assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6), ParallelBatch.mapIndexed(7, 3, i -> i, ParallelBatch.defaultExecutor()));
+	}
+
+	/**
+	 * <p>testTokenIndexOfRandomText.</p>
+	 *
+	 * @throws java.lang.Exception if any.
+	 */
+	@Test
+	public void testTokenIndexOfRandomText() throws Exception {
+		String alphabet = "ab1.\u00e9  \t\u000B\f\r\n\u0001";
+		Random random = new Random(1);
+		for (int length : new int[]{63, 64, 65, 4096, 20000}) {
+			StringBuilder content = new StringBuilder();
+			for (int i = 0; i < length; i++) {
+				content.append(alphabet.charAt(random.nextInt(i < length / 2 ? alphabet.length() - 1 : alphabet.length())));
+			}
+			List<String> lines = IOUtils.readLines(new StringReader(content.toString()));
+			ByteBuffer data = ByteBuffer.wrap(content.toString().getBytes(StandardCharsets.UTF_8));
+			assertTokens(lines, TokenIndex.of(data, StandardCharsets.UTF_8, TokenIndex.ALL, TokenIndex.ALL));
+			TokenIndex index = TokenIndex.of(data, StandardCharsets.UTF_8, lines.size() / 2, 2);
+			assertEquals(lines.size() / 2, index.getNumberOfRows());
+			for (int row = 0; row < index.getNumberOfRows(); row++) {
+				String[] tokens = lines.get(row).trim().split("\\s+");
+				assertEquals(Math.min(tokens.length, 2), index.getNumberOfTokens(row));
+				for (int col = 0; col < index.getNumberOfTokens(row); col++) {
+					assertEquals(tokens[col], index.getToken(row, col));
+				}
+			}
+		}
+	}
+
+	private static void assertTokens(List<String> lines, TokenIndex index) {
+		assertEquals(lines.size(), index.getNumberOfRows());
+		for (int row = 0; row < lines.size(); row++) {
+			String[] tokens = lines.get(row).trim().split("\\s+");
+			assertEquals(tokens.length, index.getNumberOfTokens(row));
+			for (int col = 0; col < tokens.length; col++) {
+				assertEquals(tokens[col], index.getToken(row, col));
+			}
+		}
+	}
+
 	private static final List<String> exampleFileContent = new ArrayList<String>() {{
 		add("1.1 1.2");
 		add(" 1 2 3 4 5 6 7 8");
@@ -181,4 +705,120 @@ public class FlatFileReaderTest {
 		@ManyRows
 		List<List<Integer>> matrixTillEnd;
 	}
+
+	public static class RecordToParse {
+
+		@Parsable(col = 1, row = 0)
+		String first;
+
+		@Parsable(col = 1, row = 1, parser = IntegerParser.class)
+		Integer second;
+	}
+
+	public static class ArraysToParse {
+
+		@Parsable(col = 1, row = 1, parser = IntegerParser.class)
+		@ManyCols(3)
+		int[] row;
+
+		@Parsable(col = 3, row = 2, parser = DoubleParser.class)
+		@ManyRows(3)
+		double[] column;
+
+		@Parsable(col = 0, row = 0, parser = DoubleParser.class)
+		@ManyCols
+		double[] tillEnd;
+
+		@Parsable(col = 4, row = 3, parser = IntegerParser.class)
+		@ManyCols
+		@ManyRows(2)
+		long[][] matrix;
+
+		@Parsable(col = 1, row = 2, parser = IntegerParser.class)
+		@ManyCols(3)
+		@ManyRows(2)
+		int[] rowMajor;
+
+		@Parsable(col = 7, row = 0, parser = IntegerParser.class)
+		@ManyCols(2)
+		int[] outOfRange;
+	}
+
+	public static class DictionaryToParse {
+
+		@Parsable
+		@ManyRows
+		@Dictionary
+		List<String> names;
+
+		@Parsable(col = 1, parser = BooleanParser.class)
+		@ManyRows
+		@Dictionary
+		List<Boolean> flags;
+
+		@Parsable(col = 1, row = 100)
+		@ManyCols(2)
+		@ManyRows
+		@Dictionary
+		List<List<String>> codes;
+	}
+
+	public static class PrimitivesToParse {
+
+		@Parsable(col = 1, row = 0, parser = DoubleParser.class)
+		double doubleValue;
+
+		@Parsable(col = 0, row = 0, parser = FloatParser.class)
+		float floatValue;
+
+		@Parsable(col = 7, row = 1, parser = ByteParser.class)
+		byte byteValue;
+
+		@Parsable(col = 0, row = 1, parser = BooleanParser.class)
+		boolean booleanValue;
+	}
+
+	public static class ListsToParse {
+
+		@Parsable(parser = CharactersParser.class)
+		LinkedList<String> characters;
+
+		@Parsable(row = 1)
+		@ManyCols
+		List<String> values;
+	}
+
+	public static class CharactersParser implements Parser<LinkedList<String>> {
+
+		@Override
+		public LinkedList<String> parse(String input) {
+			LinkedList<String> characters = new LinkedList<>();
+			for (char c : input.toCharArray()) {
+				characters.add(String.valueOf(c));
+			}
+			return characters;
+		}
+	}
+
+	public static class RaggedToParse {
+
+		@Parsable(row = 0, col = 1)
+		@ManyRows
+		@ManyCols
+		List<List<String>> values;
+	}
+
+	public static class HeaderToParse {
+
+		@Parsable(col = 1, row = 1, parser = IntegerParser.class)
+		int singleValue;
+
+		@Parsable(col = 3, row = 2, parser = IntegerParser.class)
+		@ManyCols(3)
+		List<Integer> oneRow;
+
+		@Parsable(col = 3, row = 1)
+		@ManyRows(3)
+		List<String> oneCol;
+	}
 }
@@ -0,0 +1,191 @@
+package com.github.piotrlechowicz.raven;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author plechowicz
+ */
+public class FlatFileSaverTest {
+
+	private File file;
+
+	@Before
+	public void setUp() throws Exception {
+		file = File.createTempFile("raven", ".txt");
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Test
+	public void sessionWritesSameLinesAsSave() throws Exception {
+		FlatFileSaver saver = new FlatFileSaver(file.getPath(), " ");
+		saver.save("header");
+		saver.save(new Row(1, 2.5));
+		saver.save(Arrays.asList(new Row(3, 4.0), new Row(5, 6.25)));
+		List<String> expected = Files.readAllLines(file.toPath());
+
+		saver = new FlatFileSaver(file.getPath(), " ");
+		try (FlatFileSaver.Session session = saver.openSession(FlushPolicy.EXPLICIT)) {
+			session.save("header");
+			session.save(new Row(1, 2.5));
+			assertEquals(0, file.length());
+			session.flush();
+			assertEquals(expected.subList(0, 2), Files.readAllLines(file.toPath()));
+			session.save(Arrays.asList(new Row(3, 4.0), new Row(5, 6.25)));
+		}
+		assertEquals(expected, Files.readAllLines(file.toPath()));
+	}
+
+	@Test
+	public void sessionWritesRowsAccordingToPolicy() throws Exception {
+		FlatFileSaver saver = new FlatFileSaver(file.getPath());
+		try (FlatFileSaver.Session session = saver.openSession(new FlushPolicy(FlushPolicy.DISABLED, 2, FlushPolicy.DISABLED))) {
+			session.save("a");
+			assertEquals(Collections.emptyList(), Files.readAllLines(file.toPath()));
+			session.save("b");
+			assertEquals(Arrays.asList("a", "b"), Files.readAllLines(file.toPath()));
+		}
+		try (FlatFileSaver.Session session = saver.openSession(new FlushPolicy(4, FlushPolicy.DISABLED, FlushPolicy.DISABLED))) {
+			session.save("cc");
+			session.save("dd");
+			assertEquals(Arrays.asList("a", "b", "cc", "dd"), Files.readAllLines(file.toPath()));
+		}
+		FlatFileSaver.Session session = saver.openSession(new FlushPolicy(FlushPolicy.DISABLED, FlushPolicy.DISABLED, 0));
+		session.save("e");
+		assertEquals(Arrays.asList("a", "b", "cc", "dd", "e"), Files.readAllLines(file.toPath()));
+		session.close();
+		try {
+			session.save("f");
+			fail();
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void asyncWriterKeepsLinesOfProducers() throws Exception {
+		for (BackpressurePolicy policy : BackpressurePolicy.values()) {
+			FlatFileSaver saver = new FlatFileSaver(file.getPath());
+			int producers = 4;
+			int rows = 5_000;
+			AsyncWriter<FileRow> writer = saver.openAsyncWriter(16, policy);
+			List<Thread> threads = new ArrayList<>();
+			for (int p = 0; p < producers; p++) {
+				int producer = p;
+				threads.add(new Thread(() -> {
+					try {
+						for (int i = 0; i < rows; i++) {
+							writer.submit(new Row(producer, (double) i));
+						}
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}));
+			}
+			threads.forEach(Thread::start);
+			for (Thread thread : threads) {
+				thread.join();
+			}
+			writer.flush();
+			assertEquals(0, writer.getQueueDepth());
+			writer.close();
+
+			assertEquals(producers * rows, writer.getSubmitted());
+			assertEquals(writer.getSubmitted(), writer.getWritten() + writer.getDropped());
+			List<String> lines = Files.readAllLines(file.toPath());
+			assertEquals(writer.getWritten(), lines.size());
+			double[] last = new double[producers];
+			Arrays.fill(last, -1);
+			for (String line : lines) {
+				String[] values = line.trim().split(" ");
+				int producer = Integer.parseInt(values[0]);
+				double value = Double.parseDouble(values[1]);
+				assertTrue(line, value > last[producer]);
+				if (policy != BackpressurePolicy.DROP) {
+					assertEquals(line, last[producer] + 1, value, 0);
+				}
+				last[producer] = value;
+			}
+		}
+	}
+
+	@Test
+	public void asyncWriterSkipsRowWhichCannotBeFormatted() throws Exception {
+		for (BackpressurePolicy policy : BackpressurePolicy.values()) {
+			FlatFileSaver saver = new FlatFileSaver(file.getPath());
+			saver.save(Arrays.asList(new Row(1, 1.0), new Row(3, 3.0)));
+			List<String> expected = Files.readAllLines(file.toPath());
+			file.delete();
+
+			AsyncWriter<FileRow> writer = saver.openAsyncWriter(16, policy);
+			writer.submit(new Row("x", 0.0));
+			writer.flush();
+			writer.submit(new Row(1, 1.0));
+			writer.submit(new Row("x", 2.0));
+			writer.submit(new Row(3, 3.0));
+			writer.close();
+			assertEquals(expected, Files.readAllLines(file.toPath()));
+			assertEquals(2, writer.getWritten());
+			assertEquals(2, writer.getRejected());
+			file.delete();
+		}
+	}
+
+	@Test
+	public void closedAsyncWriterRejectsRows() throws Exception {
+		FlatFileSaver saver = new FlatFileSaver(file.getPath());
+		AsyncWriter<String> writer = saver.openAsyncLineWriter(4, BackpressurePolicy.BLOCK);
+		writer.submit("a");
+		writer.close();
+		assertEquals(Collections.singletonList("a"), Files.readAllLines(file.toPath()));
+		assertEquals(1, writer.getBatches());
+		try {
+			writer.submit("b");
+			fail();
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	private static class Row implements FileRow {
+
+		private final Object[] values;
+
+		private Row(Object... values) {
+			this.values = values;
+		}
+
+		@Override
+		public int getNumberOfValues() {
+			return values.length;
+		}
+
+		@Override
+		public Object getValueAt(int row) {
+			return values[row];
+		}
+
+		@Override
+		public String getFormatAt(int row) {
+			return row == 0 ? "%d" : "%.2f";
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package com.github.piotrlechowicz.raven;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * @author plechowicz
+ */
+public class FormatPlanTest {
+
+	private static final List<String> FORMATS = Arrays.asList("%s", "%d", "%x", "%f", "%.0f", "%.2f", "%.7f", "%8s",
+			"%-8s", "<%s>%%%n", "value: %d;", "", "no value", "%S", "%5.1f", "%,d", "%05d", "%X", "%1$s", "%s %s", "%-s", "%");
+
+	private static final List<Object> VALUES = Arrays.asList(null, "text", "", 0, -1, 17, Integer.MIN_VALUE, Long.MAX_VALUE,
+			-5L, (byte) -1, (short) -300, 0.0, -0.0, 0.5, 1.5, 2.5, -2.5, 0.125, 1.005, 9.9999999, 123456.789, 1e-5, 5e-3,
+			1e20, 1.7976931348623157e308, Double.MIN_VALUE, Double.NaN, Double.NEGATIVE_INFINITY, 0.1f, -3.75f,
+			new BigDecimal("1.25"), true, 'c', new Object() {
+				@Override
+				public String toString() {
+					return null;
+				}
+			});
+
+	@Test
+	public void formatsLikeStringFormat() {
+		for (String format : FORMATS) {
+			FormatPlan plan = FormatPlan.compile(format);
+			for (Object value : VALUES) {
+				assertFormattedLikeStringFormat(plan, value);
+			}
+			assertFormattedLikeStringFormat(plan, 12, () -> appendInt(plan, 12));
+			assertFormattedLikeStringFormat(plan, -12L, () -> appendLong(plan, -12L));
+			assertFormattedLikeStringFormat(plan, 0.045, () -> appendDouble(plan, 0.045));
+		}
+	}
+
+	@Test
+	public void randomFloatingPointValuesAreRoundedLikeStringFormat() {
+		Random random = new Random(11);
+		for (int i = 0; i < 100_000; i++) {
+			int precision = random.nextInt(10);
+			FormatPlan plan = FormatPlan.compile("%." + precision + "f");
+			double value = random.nextBoolean() ? Double.longBitsToDouble(random.nextLong())
+					: (random.nextInt(2_000_000) - 1_000_000) / Math.pow(10, random.nextInt(12));
+			if (Math.abs(value) < 1e30) {
+				assertFormattedLikeStringFormat(plan, value);
+				assertFormattedLikeStringFormat(plan, (float) value);
+			}
+		}
+	}
+
+	@Test
+	public void otherLocalesAreFormattedWithStringFormat() {
+		Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+		try {
+			Locale.setDefault(Locale.Category.FORMAT, Locale.GERMANY);
+			assertEquals("1,50", FormatPlan.compile("%.2f").format(1.5));
+			Locale.setDefault(Locale.Category.FORMAT, new Locale("ar", "SA", "nu-arab"));
+			assertFormattedLikeStringFormat(FormatPlan.compile("%d"), 123);
+		} finally {
+			Locale.setDefault(Locale.Category.FORMAT, locale);
+		}
+		assertEquals("1.50", FormatPlan.compile("%.2f").format(1.5));
+	}
+
+	private static void assertFormattedLikeStringFormat(FormatPlan plan, Object value) {
+		assertFormattedLikeStringFormat(plan, value, () -> plan.format(value));
+	}
+
+	private static void assertFormattedLikeStringFormat(FormatPlan plan, Object value, Formatting formatting) {
+		String expected;
+		try {
+			expected = String.format(plan.getFormat(), value);
+		} catch (RuntimeException e) {
+			try {
+				formatting.format();
+				fail(plan.getFormat() + " " + value);
+			} catch (RuntimeException actual) {
+				assertEquals(e.getClass(), actual.getClass());
+			}
+			return;
+		}
+		assertEquals(plan.getFormat() + " " + value, expected, formatting.format());
+	}
+
+	private static String appendInt(FormatPlan plan, int value) {
+		StringBuilder builder = new StringBuilder();
+		plan.appendTo(builder, value);
+		return builder.toString();
+	}
+
+	private static String appendLong(FormatPlan plan, long value) {
+		StringBuilder builder = new StringBuilder();
+		plan.appendTo(builder, value);
+		return builder.toString();
+	}
+
+	private static String appendDouble(FormatPlan plan, double value) {
+		StringBuilder builder = new StringBuilder();
+		plan.appendTo(builder, value);
+		return builder.toString();
+	}
+
+	private interface Formatting {
+		String format();
+	}
+}
@@ -10,10 +10,15 @@ import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.mockito.ArgumentMatchers.*;
 
@@ -89,6 +94,66 @@ public class RavenSaverTest {
 		thenResultValueIsCreatedCorrectly();
 	}
 
+	@Test
+	public void streamedRowsAreSavedLikeList() throws IOException {
+		List<ClassToSave> rows = new ArrayList<>();
+		for (int i = 0; i < 20_000; i++) {
+			ClassToSave cs = new ClassToSave();
+			cs.name = "value" + i;
+			cs.name2 = i % 7 == 0 ? "\u00e9t\u00e9" : "x";
+			cs.intValue = i;
+			rows.add(cs);
+		}
+		RavenSaver<ClassToSave> saver = new RavenSaver<>(ClassToSave.class);
+		byte[] expected = (saver.getValueAsString(rows, true) + "\n").getBytes(Charset.defaultCharset());
+
+		File file = File.createTempFile("raven", ".txt");
+		try {
+			saver.save(file.getPath(), false, rows.iterator(), true);
+			Assert.assertTrue(Arrays.equals(expected, Files.readAllBytes(file.toPath())));
+			saver.save(file.getPath(), false, rows.stream(), true);
+			Assert.assertTrue(Arrays.equals(expected, Files.readAllBytes(file.toPath())));
+			saver.save(file.getPath(), false, rows.spliterator(), true);
+			Assert.assertTrue(Arrays.equals(expected, Files.readAllBytes(file.toPath())));
+			try (AsyncWriter<ClassToSave> writer = saver.openAsyncWriter(file.getPath(), false, true, 64,
+					BackpressurePolicy.BLOCK)) {
+				for (ClassToSave row : rows) {
+					writer.submit(row);
+				}
+			}
+			Assert.assertTrue(Arrays.equals(expected, Files.readAllBytes(file.toPath())));
+			saver.save(file.getPath(), false, Collections.<ClassToSave>emptyIterator(), true);
+			Assert.assertEquals(0, file.length());
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void rowsFormattedInParallelAreSavedLikeSequential() throws IOException {
+		List<ClassToSave> rows = new ArrayList<>();
+		int count = 3 * Runtime.getRuntime().availableProcessors() * RavenSaver.PARTITION_ROWS + 17;
+		for (int i = 0; i < count; i++) {
+			ClassToSave cs = new ClassToSave();
+			cs.name = "value" + i;
+			cs.name2 = i % 5 == 0 ? "\u00e9t\u00e9" : "x";
+			cs.intValue = i;
+			rows.add(cs);
+		}
+		File sequential = File.createTempFile("raven", ".txt");
+		File parallel = File.createTempFile("raven", ".txt");
+		ForkJoinPool pool = new ForkJoinPool(3);
+		try {
+			new RavenSaver<>(ClassToSave.class, ";", null).save(sequential.getPath(), false, rows, true);
+			new RavenSaver<>(ClassToSave.class, ";", pool).save(parallel.getPath(), false, rows, true);
+			Assert.assertTrue(Arrays.equals(Files.readAllBytes(sequential.toPath()), Files.readAllBytes(parallel.toPath())));
+		} finally {
+			pool.shutdown();
+			sequential.delete();
+			parallel.delete();
+		}
+	}
+
 	private void thenResultValueIsCreatedCorrectly() {
 		Assert.assertEquals(expectedString, resultString);
 	}
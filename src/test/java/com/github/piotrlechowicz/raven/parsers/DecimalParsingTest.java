@@ -0,0 +1,112 @@
+package com.github.piotrlechowicz.raven.parsers;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+/**
+ * @author plechowicz
+ */
+public class DecimalParsingTest {
+
+	private static final String[] SPECIAL = {
+			"0", "-0", "+0", "0.0", "-0.0e10", ".5", "5.", "1e0", "1E+2", "-1e-2", "9007199254740993",
+			"9007199254740992.5", "1.7976931348623157e308", "1.7976931348623159e308", "4.9e-324", "2.2250738585072014E-308",
+			"3.4028235e38", "3.4028236e38", "1.4e-45", "1.17549435E-38", "9999999999999999999", "18446744073709551615",
+			"123456789012345678901234567890", "0.1", "0.2", "0.3", "2.5e-3", "1e23", "8.589973e9", "1e400", "1e-400",
+			"NaN", "-Infinity", "0x1.8p1", " 1.5", "1.5d", "1.5f", "1e", "e5", "-", ".", "1..2", "00000000000000000000001.5"};
+
+	private final Random random = new Random(2021);
+
+	@Test
+	public void specialValuesAreParsedLikeJdk() {
+		for (String value : SPECIAL) {
+			assertParsedLikeJdk(value);
+		}
+	}
+
+	@Test
+	public void randomValuesAreParsedLikeJdk() {
+		for (int i = 0; i < 200_000; i++) {
+			assertParsedLikeJdk(Double.toString(Double.longBitsToDouble(random.nextLong())));
+			assertParsedLikeJdk(Float.toString(Float.intBitsToFloat(random.nextInt())));
+			assertParsedLikeJdk(randomDecimal());
+		}
+	}
+
+	@Test
+	public void halfwayValuesAreRoundedToEven() {
+		for (int i = 0; i < 20_000; i++) {
+			double value = Math.abs(Double.longBitsToDouble(random.nextLong()));
+			if (Double.isFinite(value) && value != 0) {
+				BigDecimal halfway = new BigDecimal(value).add(new BigDecimal(Math.nextUp(value))).divide(BigDecimal.valueOf(2));
+				assertParsedLikeJdk(halfway.round(new java.math.MathContext(19)).toString());
+				assertParsedLikeJdk(halfway.round(new java.math.MathContext(17)).toString());
+			}
+		}
+	}
+
+	@Test
+	public void valueIsParsedFromRange() {
+		Assert.assertEquals(12.5, DecimalParsing.parseDouble("a;12.5;b", 2, 6), 0);
+		Assert.assertEquals(-3e-7f, DecimalParsing.parseFloat("x-3e-7", 1, 6), 0);
+	}
+
+	private String randomDecimal() {
+		StringBuilder builder = new StringBuilder();
+		if (random.nextBoolean()) {
+			builder.append('-');
+		}
+		int digits = 1 + random.nextInt(20);
+		int point = random.nextInt(digits + 1);
+		for (int i = 0; i < digits; i++) {
+			if (i == point) {
+				builder.append('.');
+			}
+			builder.append((char) ('0' + random.nextInt(10)));
+		}
+		if (random.nextBoolean()) {
+			builder.append('e').append(random.nextInt(700) - 350);
+		}
+		return builder.toString();
+	}
+
+	private static void assertParsedLikeJdk(String value) {
+		Assert.assertEquals(value, parseDoubleWithJdk(value), parseDouble(value));
+		Assert.assertEquals(value, parseFloatWithJdk(value), parseFloat(value));
+	}
+
+	private static String parseDoubleWithJdk(String value) {
+		try {
+			return Long.toHexString(Double.doubleToRawLongBits(Double.parseDouble(value)));
+		} catch (NumberFormatException e) {
+			return e.toString();
+		}
+	}
+
+	private static String parseDouble(String value) {
+		try {
+			return Long.toHexString(Double.doubleToRawLongBits(DecimalParsing.parseDouble(value, 0, value.length())));
+		} catch (NumberFormatException e) {
+			return e.toString();
+		}
+	}
+
+	private static String parseFloatWithJdk(String value) {
+		try {
+			return Integer.toHexString(Float.floatToRawIntBits(Float.parseFloat(value)));
+		} catch (NumberFormatException e) {
+			return e.toString();
+		}
+	}
+
+	private static String parseFloat(String value) {
+		try {
+			return Integer.toHexString(Float.floatToRawIntBits(DecimalParsing.parseFloat(value, 0, value.length())));
+		} catch (NumberFormatException e) {
+			return e.toString();
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package com.github.piotrlechowicz.raven;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs only with the java21 profile, which adds module {@code jdk.incubator.vector} and the multi-release classes
+ * to tests.
+ *
+ * @author plechowicz
+ */
+public class VectorByteScannerTest {
+
+	private static final int WORDS = 64;
+
+	/**
+	 * Bytes which are classified, and their neighbours
+	 */
+	private static final byte[] SPECIAL = {0, 1, '\t', '\n', 0x0B, '\f', '\r', 0x1F, ' ', '!', 0x7F, (byte) 0x80,
+			(byte) 0x89, (byte) 0x8A, (byte) 0x8D, (byte) 0xA0, (byte) 0xFF};
+
+	private final ByteScanner scalar = new ByteScanner.ScalarByteScanner();
+
+	@Test
+	public void vectorScannerIsLoaded() {
+		assertEquals("com.github.piotrlechowicz.raven.VectorByteScanner", ByteScanner.getInstance().getClass().getName());
+	}
+
+	@Test
+	public void classifiesAllByteValuesLikeScalarScanner() {
+		byte[] bytes = new byte[WORDS * ByteScanner.WORD_SIZE];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) i;
+		}
+		assertClassifiedLikeScalar(bytes, WORDS);
+		for (int shift = 1; shift < ByteScanner.WORD_SIZE; shift++) {
+			for (int i = 0; i < bytes.length; i++) {
+				bytes[i] = (byte) (i + shift);
+			}
+			assertClassifiedLikeScalar(bytes, WORDS);
+		}
+	}
+
+	@Test
+	public void classifiesEdgeCasesLikeScalarScanner() {
+		byte[] bytes = new byte[WORDS * ByteScanner.WORD_SIZE];
+		for (byte b : SPECIAL) {
+			Arrays.fill(bytes, b);
+			assertClassifiedLikeScalar(bytes, WORDS);
+		}
+		Arrays.fill(bytes, (byte) 'a');
+		for (byte b : SPECIAL) {
+			for (int i = 0; i < ByteScanner.WORD_SIZE; i++) {
+				// single byte at each position of a word, including both ends of vectors of every length
+				bytes[ByteScanner.WORD_SIZE + i] = b;
+				assertClassifiedLikeScalar(bytes, 3);
+				bytes[ByteScanner.WORD_SIZE + i] = 'a';
+			}
+		}
+		assertClassifiedLikeScalar(bytes, 0);
+	}
+
+	@Test
+	public void classifiesRandomBytesLikeScalarScanner() {
+		Random random = new Random(21);
+		for (int n = 0; n < 2_000; n++) {
+			int words = 1 + random.nextInt(WORDS);
+			// array can be longer than the classified words
+			byte[] bytes = new byte[words * ByteScanner.WORD_SIZE + random.nextInt(ByteScanner.WORD_SIZE)];
+			int kind = random.nextInt(3);
+			for (int i = 0; i < bytes.length; i++) {
+				if (kind == 0) {
+					bytes[i] = (byte) random.nextInt();
+				} else if (kind == 1) {
+					bytes[i] = SPECIAL[random.nextInt(SPECIAL.length)];
+				} else {
+					// text with rare line terminators and control characters
+					int r = random.nextInt(100);
+					bytes[i] = r < 80 ? (byte) ('0' + random.nextInt(10)) : r < 98 ? (byte) ' '
+							: SPECIAL[random.nextInt(SPECIAL.length)];
+				}
+			}
+			assertClassifiedLikeScalar(bytes, words);
+		}
+	}
+
+	private void assertClassifiedLikeScalar(byte[] bytes, int words) {
+		long[][] expected = classify(scalar, bytes, words);
+		long[][] actual = classify(ByteScanner.getInstance(), bytes, words);
+		for (int i = 0; i < expected.length; i++) {
+			assertTrue("mask " + i + " of " + Arrays.toString(bytes), Arrays.equals(expected[i], actual[i]));
+		}
+	}
+
+	private static long[][] classify(ByteScanner scanner, byte[] bytes, int words) {
+		long[][] masks = new long[4][WORDS];
+		for (long[] mask : masks) {
+			// words which are not classified are left as they are
+			Arrays.fill(mask, -1);
+		}
+		scanner.classify(bytes, words, masks[0], masks[1], masks[2], masks[3]);
+		return masks;
+	}
+}